@@ -0,0 +1,117 @@
+package ch.epfl.javions.aircraft;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.Enumeration;
+import java.util.function.Consumer;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Contains methods to read the CSV files of the aircraft mictronics database
+ *
+ * @author Ünlüer Asli (329696)
+ * @author Berlin Nicolas (355535)
+ */
+final class AircraftCsv {
+    static final String FORMAT = ".csv";
+    static final int NO_KEY = -1;
+    static final int ICAO_ADDRESS_INDEX = 0;
+    static final int REGISTRATION_INDEX = 1;
+    static final int TYPE_DESIGNATOR_INDEX = 2;
+    static final int MODEL_INDEX = 3;
+    static final int DESCRIPTION_INDEX = 4;
+    static final int WAKE_TURBULENCE_INDEX = 5;
+    private static final String SEPARATOR = ",";
+    private static final int HEX_RADIX = 16;
+
+    private AircraftCsv() {
+    }
+
+    /**
+     * Splits a line of the database into its fields, keeping the empty ones
+     *
+     * @param line of the database
+     * @return the fields of the line
+     */
+    static String[] fields(String line) {
+        return line.split(SEPARATOR, -1);
+    }
+
+    /**
+     * Constructs the information about an aircraft from the fields of its line
+     *
+     * @param fields of the line
+     * @return the information about the aircraft
+     * @throws IllegalArgumentException if one of the fields is not valid
+     */
+    static AircraftData data(String[] fields) {
+        return new AircraftData(new AircraftRegistration(fields[REGISTRATION_INDEX]),
+                new AircraftTypeDesignator(fields[TYPE_DESIGNATOR_INDEX]),
+                fields[MODEL_INDEX],
+                new AircraftDescription(fields[DESCRIPTION_INDEX]),
+                WakeTurbulenceCategory.of(fields[WAKE_TURBULENCE_INDEX]));
+    }
+
+    /**
+     * Converts an ICAO address into the integer used as key by the indexed databases
+     *
+     * @param address aircraft's ICAO address
+     * @return the 24 bits value of the address, or NO_KEY if it is not hexadecimal
+     */
+    static int key(IcaoAddress address) {
+        return key(address.string());
+    }
+
+    /**
+     * Converts the string of an ICAO address into the integer used as key by the indexed databases
+     *
+     * @param address string of the ICAO address
+     * @return the 24 bits value of the address, or NO_KEY if it is not hexadecimal
+     */
+    static int key(String address) {
+        try {
+            return Integer.parseInt(address, HEX_RADIX);
+        } catch (NumberFormatException e) {
+            return NO_KEY;
+        }
+    }
+
+    /**
+     * Reads every line of every CSV file of the database
+     *
+     * @param zipFile the database
+     * @param action  applied to each line
+     * @throws IOException if an error occurs while reading a file
+     */
+    static void forEachLine(ZipFile zipFile, Consumer<String> action) throws IOException {
+        Enumeration<? extends ZipEntry> entries = zipFile.entries();
+        while (entries.hasMoreElements()) {
+            ZipEntry entry = entries.nextElement();
+            if (entry.getName().endsWith(FORMAT)) forEachLine(zipFile, entry, action);
+        }
+    }
+
+    /**
+     * Reads every line of one CSV file of the database
+     *
+     * @param zipFile the database
+     * @param entry   of the CSV file
+     * @param action  applied to each line
+     * @throws IOException if an error occurs while reading the file
+     */
+    static void forEachLine(ZipFile zipFile, ZipEntry entry, Consumer<String> action) throws IOException {
+        try (InputStream stream = zipFile.getInputStream(entry);
+             Reader reader = new InputStreamReader(stream, StandardCharsets.UTF_8);
+             BufferedReader bufferedReader = new BufferedReader(reader)) {
+            String line;
+            while ((line = bufferedReader.readLine()) != null) {
+                if (!line.isEmpty()) action.accept(line);
+            }
+        }
+    }
+}
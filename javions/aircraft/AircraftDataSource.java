@@ -0,0 +1,21 @@
+package ch.epfl.javions.aircraft;
+
+import java.io.IOException;
+
+/**
+ * Represents a source of information about aircraft, indexed by their ICAO address
+ *
+ * @author Ünlüer Asli (329696)
+ * @author Berlin Nicolas (355535)
+ */
+public interface AircraftDataSource {
+
+    /**
+     * Gets information about the aircraft with the ICAO address
+     *
+     * @param address aircraft's ICAO address
+     * @return null if the aircraft does not exist in the source
+     * @throws IOException if an error occurs while reading the source
+     */
+    AircraftData get(IcaoAddress address) throws IOException;
+}
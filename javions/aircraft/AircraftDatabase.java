@@ -12,9 +12,8 @@ import java.util.zip.ZipFile;
  * @author Berlin Nicolas (355535)
  */
 
-public final class AircraftDatabase {
+public final class AircraftDatabase implements AircraftDataSource {
     private final String fileName;
-    private static final String FORMAT = ".csv";
     private static final int LENGHT_ICAO_ADDRES = 6;
 
     /**
@@ -35,10 +34,11 @@ public final class AircraftDatabase {
      * @return null if the aircraft does not exist in the file
      * @throws IOException if an error occurs while reading a file
      */
+    @Override
     public AircraftData get(IcaoAddress address) throws IOException {
         String lastTwoLetters = address.string().substring(LENGHT_ICAO_ADDRES - 2);
         try (ZipFile zipFile = new ZipFile(fileName);
-             InputStream stream = zipFile.getInputStream(zipFile.getEntry(lastTwoLetters + FORMAT));
+             InputStream stream = zipFile.getInputStream(zipFile.getEntry(lastTwoLetters + AircraftCsv.FORMAT));
              Reader reader = new InputStreamReader(stream, StandardCharsets.UTF_8);
              BufferedReader bufferedReader = new BufferedReader(reader)) {
             String emptyString;
@@ -49,12 +49,7 @@ public final class AircraftDatabase {
                 }
             }
             if (emptyString != null && emptyString.startsWith(address.string())) {
-                var stringTable = emptyString.split(",", -1);
-                return new AircraftData(new AircraftRegistration(stringTable[1]),
-                        new AircraftTypeDesignator(stringTable[2]),
-                        stringTable[3],
-                        new AircraftDescription(stringTable[4]),
-                        WakeTurbulenceCategory.of(stringTable[5]));
+                return AircraftCsv.data(AircraftCsv.fields(emptyString));
             }
         }
         return null;
@@ -0,0 +1,162 @@
+package ch.epfl.javions.aircraft;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Comparator;
+import java.util.List;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Compiles the aircraft mictronics database into a compact binary file that can be memory-mapped.
+ * The file is made of a header, of an index of fixed-width entries sorted by ICAO address and of a heap
+ * containing the wake turbulence category and the strings of every aircraft.
+ *
+ * @author Ünlüer Asli (329696)
+ * @author Berlin Nicolas (355535)
+ */
+public final class AircraftDatabaseCompiler {
+    static final int MAGIC = 0x4A564442;
+    static final int VERSION = 1;
+    static final int HEADER_BYTES = 2 * Integer.BYTES + Long.BYTES + 2 * Integer.BYTES;
+    static final int CHECKSUM_POSITION = 2 * Integer.BYTES;
+    static final int COUNT_POSITION = CHECKSUM_POSITION + Long.BYTES;
+    static final int HEAP_SIZE_POSITION = COUNT_POSITION + Integer.BYTES;
+    static final int ENTRY_BYTES = 2 * Integer.BYTES;
+    private static final String TEMPORARY_SUFFIX = ".tmp";
+
+    private AircraftDatabaseCompiler() {
+    }
+
+    /**
+     * Compiles the database stored in the given zip file into the given binary file.
+     * The binary file is written to a uniquely named temporary file next to the target and then moved
+     * atomically, so that a file currently mapped by a reader is never modified and that concurrent
+     * compilations do not write to the same file. The temporary file is deleted if the compilation fails.
+     *
+     * @param zipFileName name of the zip file of the database
+     * @param target      path of the binary file
+     * @throws IOException if an error occurs while reading the database or writing the file
+     */
+    public static void compile(String zipFileName, Path target) throws IOException {
+        long checksum = sourceChecksum(zipFileName);
+        AircraftTable table = AircraftTable.load(zipFileName);
+        Path absoluteTarget = target.toAbsolutePath();
+
+        int[] recordOffsets = new int[table.size()];
+        int heapSize = 0;
+        for (int i = 0; i < table.size(); i++) {
+            recordOffsets[i] = heapSize;
+            heapSize += Byte.BYTES;
+            for (int field = 0; field < AircraftTable.STRING_FIELDS; field++) {
+                heapSize += Short.BYTES + table.fieldBytes(i, field).length;
+            }
+        }
+
+        Path temporary = Files.createTempFile(absoluteTarget.getParent(),
+                absoluteTarget.getFileName().toString(), TEMPORARY_SUFFIX);
+        try {
+            try (OutputStream stream = Files.newOutputStream(temporary);
+                 DataOutputStream out = new DataOutputStream(new BufferedOutputStream(stream))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeLong(checksum);
+                out.writeInt(table.size());
+                out.writeInt(heapSize);
+                for (int i = 0; i < table.size(); i++) {
+                    out.writeInt(table.key(i));
+                    out.writeInt(recordOffsets[i]);
+                }
+                for (int i = 0; i < table.size(); i++) {
+                    out.writeByte(table.category(i).ordinal());
+                    for (int field = 0; field < AircraftTable.STRING_FIELDS; field++) {
+                        byte[] bytes = table.fieldBytes(i, field);
+                        out.writeShort(bytes.length);
+                        out.write(bytes);
+                    }
+                }
+            }
+            Files.move(temporary, absoluteTarget,
+                    StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temporary);
+            throw e;
+        }
+    }
+
+    /**
+     * Checks if the given binary file has been compiled by the current version of the compiler
+     * from the current content of the given zip file
+     *
+     * @param zipFileName name of the zip file of the database
+     * @param target      path of the binary file
+     * @return true if the binary file exists and is up to date, otherwise false
+     * @throws IOException if an error occurs while reading the database
+     */
+    public static boolean isUpToDate(String zipFileName, Path target) throws IOException {
+        if (!Files.isRegularFile(target)) return false;
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+        try (FileChannel channel = FileChannel.open(target, StandardOpenOption.READ)) {
+            while (header.hasRemaining()) {
+                if (channel.read(header) < 0) return false;
+            }
+            header.flip();
+            if (header.getInt() != MAGIC || header.getInt() != VERSION) return false;
+            if (header.getLong() != sourceChecksum(zipFileName)) return false;
+            long expectedSize = HEADER_BYTES + (long) header.getInt() * ENTRY_BYTES + header.getInt();
+            return channel.size() == expectedSize;
+        }
+    }
+
+    /**
+     * Computes a checksum of the content of the database, from the CRC of its entries stored in
+     * the central directory of the zip file, so that its data does not have to be read
+     *
+     * @param zipFileName name of the zip file of the database
+     * @return the checksum of the database
+     * @throws IOException if an error occurs while reading the file
+     */
+    static long sourceChecksum(String zipFileName) throws IOException {
+        CRC32 crc = new CRC32();
+        try (ZipFile zipFile = new ZipFile(zipFileName)) {
+            List<? extends ZipEntry> entries = zipFile.stream()
+                    .filter(entry -> entry.getName().endsWith(AircraftCsv.FORMAT))
+                    .sorted(Comparator.comparing(ZipEntry::getName))
+                    .toList();
+            ByteBuffer entryFingerprint = ByteBuffer.allocate(2 * Long.BYTES);
+            for (ZipEntry entry : entries) {
+                crc.update(entry.getName().getBytes(StandardCharsets.UTF_8));
+                entryFingerprint.clear();
+                entryFingerprint.putLong(entry.getCrc()).putLong(entry.getSize()).flip();
+                crc.update(entryFingerprint);
+            }
+            return ((long) entries.size() << Integer.SIZE) | crc.getValue();
+        }
+    }
+
+    /**
+     * Compiles the database given as first argument into the binary file given as second argument
+     *
+     * @param args name of the zip file of the database and path of the binary file
+     * @throws IOException if an error occurs while reading the database or writing the file
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            System.err.println("usage: AircraftDatabaseCompiler <aircraft.zip> <aircraft.bin>");
+            return;
+        }
+        long startTime = System.nanoTime();
+        compile(args[0], Path.of(args[1]));
+        System.out.printf("compiled %s in %.0f ms%n", args[1], (System.nanoTime() - startTime) / 1e6);
+    }
+}
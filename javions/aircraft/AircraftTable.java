@@ -0,0 +1,210 @@
+package ch.epfl.javions.aircraft;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.zip.ZipFile;
+
+import static ch.epfl.javions.aircraft.AircraftCsv.*;
+
+/**
+ * Represents a table of aircraft information stored in compact primitive arrays sorted by ICAO address.
+ * The strings of all the aircraft are stored in UTF-8 in a single byte pool.
+ *
+ * @author Ünlüer Asli (329696)
+ * @author Berlin Nicolas (355535)
+ */
+final class AircraftTable {
+    static final int STRING_FIELDS = 4;
+    private static final int[] STRING_FIELD_INDEXES =
+            {REGISTRATION_INDEX, TYPE_DESIGNATOR_INDEX, MODEL_INDEX, DESCRIPTION_INDEX};
+    private static final WakeTurbulenceCategory[] CATEGORIES = WakeTurbulenceCategory.values();
+    private static final int ARRAY_HEADER_BYTES = 16;
+    private static final int INDEX_BITS = Integer.SIZE;
+
+    private final int[] keys;
+    private final int[] offsets;
+    private final byte[] pool;
+    private final byte[] categories;
+
+    private AircraftTable(int[] keys, int[] offsets, byte[] pool, byte[] categories) {
+        this.keys = keys;
+        this.offsets = offsets;
+        this.pool = pool;
+        this.categories = categories;
+    }
+
+    /**
+     * Loads all the aircraft of the database stored in the given file
+     *
+     * @param fileName name of the zip file of the database
+     * @return the table of all the aircraft
+     * @throws IOException if an error occurs while reading the file
+     */
+    static AircraftTable load(String fileName) throws IOException {
+        Builder builder = new Builder();
+        try (ZipFile zipFile = new ZipFile(fileName)) {
+            AircraftCsv.forEachLine(zipFile, line -> builder.add(AircraftCsv.fields(line)));
+        }
+        return builder.build();
+    }
+
+    /**
+     * Returns the number of aircraft of the table
+     *
+     * @return the number of aircraft
+     */
+    int size() {
+        return keys.length;
+    }
+
+    /**
+     * Returns the index of the aircraft with the given key, found by binary search
+     *
+     * @param key of the ICAO address
+     * @return the index of the aircraft, or a negative value if it is not in the table
+     */
+    int indexOf(int key) {
+        return key == NO_KEY ? -1 : Arrays.binarySearch(keys, key);
+    }
+
+    /**
+     * Returns the key of the ICAO address of the aircraft at the given index
+     *
+     * @param index of the aircraft
+     * @return the key of its ICAO address
+     */
+    int key(int index) {
+        return keys[index];
+    }
+
+    /**
+     * Returns the wake turbulence category of the aircraft at the given index
+     *
+     * @param index of the aircraft
+     * @return its wake turbulence category
+     */
+    WakeTurbulenceCategory category(int index) {
+        return CATEGORIES[categories[index]];
+    }
+
+    /**
+     * Returns the UTF-8 bytes of one string field of the aircraft at the given index
+     *
+     * @param index of the aircraft
+     * @param field index of the string field, between 0 (included) and STRING_FIELDS (excluded)
+     * @return a copy of the bytes of the field
+     */
+    byte[] fieldBytes(int index, int field) {
+        int position = index * STRING_FIELDS + field;
+        return Arrays.copyOfRange(pool, offsets[position], offsets[position + 1]);
+    }
+
+    /**
+     * Constructs the information about the aircraft at the given index
+     *
+     * @param index of the aircraft
+     * @return the information about the aircraft
+     */
+    AircraftData dataAt(int index) {
+        return new AircraftData(new AircraftRegistration(field(index, 0)),
+                new AircraftTypeDesignator(field(index, 1)),
+                field(index, 2),
+                new AircraftDescription(field(index, 3)),
+                category(index));
+    }
+
+    /**
+     * Returns the number of bytes occupied by the arrays of the table
+     *
+     * @return the memory footprint of the table in bytes
+     */
+    long byteSize() {
+        return 4L * ARRAY_HEADER_BYTES
+                + (long) Integer.BYTES * (keys.length + offsets.length)
+                + pool.length
+                + categories.length;
+    }
+
+    private String field(int index, int field) {
+        int position = index * STRING_FIELDS + field;
+        int start = offsets[position];
+        return new String(pool, start, offsets[position + 1] - start, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Represents a builder of aircraft tables, that accepts the lines of the database in any order
+     *
+     * @author Ünlüer Asli (329696)
+     * @author Berlin Nicolas (355535)
+     */
+    static final class Builder {
+        private static final int INITIAL_CAPACITY = 1 << 10;
+
+        private int[] keys = new int[INITIAL_CAPACITY];
+        private int[] offsets = new int[INITIAL_CAPACITY * STRING_FIELDS + 1];
+        private byte[] categories = new byte[INITIAL_CAPACITY];
+        private final ByteArrayOutputStream pool = new ByteArrayOutputStream();
+        private int size;
+
+        /**
+         * Adds the aircraft described by the fields of a line of the database
+         *
+         * @param fields of the line
+         * @return the builder
+         */
+        Builder add(String[] fields) {
+            int key = AircraftCsv.key(fields[ICAO_ADDRESS_INDEX]);
+            if (key == NO_KEY) return this;
+            if (size == keys.length) {
+                keys = Arrays.copyOf(keys, size * 2);
+                offsets = Arrays.copyOf(offsets, size * 2 * STRING_FIELDS + 1);
+                categories = Arrays.copyOf(categories, size * 2);
+            }
+            keys[size] = key;
+            categories[size] = (byte) WakeTurbulenceCategory.of(fields[WAKE_TURBULENCE_INDEX]).ordinal();
+            for (int field = 0; field < STRING_FIELDS; field++) {
+                byte[] bytes = fields[STRING_FIELD_INDEXES[field]].getBytes(StandardCharsets.UTF_8);
+                pool.writeBytes(bytes);
+                offsets[size * STRING_FIELDS + field + 1] = pool.size();
+            }
+            size++;
+            return this;
+        }
+
+        /**
+         * Builds the table, sorting the aircraft by ICAO address
+         *
+         * @return the table
+         */
+        AircraftTable build() {
+            long[] order = new long[size];
+            for (int i = 0; i < size; i++) {
+                order[i] = ((long) keys[i] << INDEX_BITS) | i;
+            }
+            Arrays.sort(order);
+
+            byte[] unsortedPool = pool.toByteArray();
+            int[] sortedKeys = new int[size];
+            int[] sortedOffsets = new int[size * STRING_FIELDS + 1];
+            byte[] sortedCategories = new byte[size];
+            byte[] sortedPool = new byte[unsortedPool.length];
+            int poolSize = 0;
+            for (int i = 0; i < size; i++) {
+                int index = (int) order[i];
+                sortedKeys[i] = keys[index];
+                sortedCategories[i] = categories[index];
+                int start = offsets[index * STRING_FIELDS];
+                int length = offsets[(index + 1) * STRING_FIELDS] - start;
+                System.arraycopy(unsortedPool, start, sortedPool, poolSize, length);
+                for (int field = 0; field < STRING_FIELDS; field++) {
+                    sortedOffsets[i * STRING_FIELDS + field + 1] =
+                            offsets[index * STRING_FIELDS + field + 1] - start + poolSize;
+                }
+                poolSize += length;
+            }
+            return new AircraftTable(sortedKeys, sortedOffsets, sortedPool, sortedCategories);
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package ch.epfl.javions.aircraft;
+
+import java.io.IOException;
+import java.util.Objects;
+
+/**
+ * Represents an aircraft database preceded by a bitmap of the addresses it contains, so that the
+ * lookups of unknown addresses (military, TIS-B, corrupted messages) return null without reading the database
+ *
+ * @author Ünlüer Asli (329696)
+ * @author Berlin Nicolas (355535)
+ */
+public final class FilteredAircraftDatabase implements AircraftDataSource {
+    private final IcaoAddressBitmap bitmap;
+    private final AircraftDataSource database;
+
+    /**
+     * Constructs a filtered database
+     *
+     * @param bitmap   of the addresses present in the database
+     * @param database the database itself
+     * @throws NullPointerException if the bitmap or the database is null
+     */
+    public FilteredAircraftDatabase(IcaoAddressBitmap bitmap, AircraftDataSource database) {
+        this.bitmap = Objects.requireNonNull(bitmap);
+        this.database = Objects.requireNonNull(database);
+    }
+
+    /**
+     * Gets information about the aircraft with the ICAO address, if the bitmap contains its address
+     *
+     * @param address aircraft's ICAO address
+     * @return null if the aircraft does not exist in the database
+     * @throws IOException if an error occurs while reading the database
+     */
+    @Override
+    public AircraftData get(IcaoAddress address) throws IOException {
+        return bitmap.contains(address) ? database.get(address) : null;
+    }
+}
@@ -0,0 +1,130 @@
+package ch.epfl.javions.aircraft;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.ZipFile;
+
+/**
+ * Represents the set of the ICAO addresses present in the aircraft mictronics database, as a bitmap
+ * of 2^24 bits (2 MB). It tells in one memory access if an address is certainly absent from the database.
+ *
+ * @author Ünlüer Asli (329696)
+ * @author Berlin Nicolas (355535)
+ */
+public final class IcaoAddressBitmap {
+    private static final int MAGIC = 0x4A564241;
+    private static final int ADDRESS_BITS = 24;
+    private static final int WORD_BITS = 6;
+    private static final int WORD_MASK = (1 << WORD_BITS) - 1;
+    private static final int HEADER_BYTES = Integer.BYTES + Long.BYTES;
+    private static final int FILE_BYTES = HEADER_BYTES + Long.BYTES * (1 << (ADDRESS_BITS - WORD_BITS));
+    private static final String TEMPORARY_SUFFIX = ".tmp";
+
+    private final long[] words = new long[1 << (ADDRESS_BITS - WORD_BITS)];
+    private final long sourceChecksum;
+
+    private IcaoAddressBitmap(long sourceChecksum) {
+        this.sourceChecksum = sourceChecksum;
+    }
+
+    /**
+     * Builds the bitmap of the addresses of the database stored in the given zip file
+     *
+     * @param zipFileName name of the zip file of the database
+     * @return the bitmap
+     * @throws IOException if an error occurs while reading the file
+     */
+    public static IcaoAddressBitmap of(String zipFileName) throws IOException {
+        IcaoAddressBitmap bitmap = new IcaoAddressBitmap(AircraftDatabaseCompiler.sourceChecksum(zipFileName));
+        try (ZipFile zipFile = new ZipFile(zipFileName)) {
+            AircraftCsv.forEachLine(zipFile, line -> {
+                int separator = line.indexOf(',');
+                int key = AircraftCsv.key(separator < 0 ? line : line.substring(0, separator));
+                if (key != AircraftCsv.NO_KEY) bitmap.words[key >>> WORD_BITS] |= 1L << (key & WORD_MASK);
+            });
+        }
+        return bitmap;
+    }
+
+    /**
+     * Reads the bitmap persisted in the given file if it has been built from the current content
+     * of the given zip file, otherwise builds it and persists it in the file
+     *
+     * @param zipFileName name of the zip file of the database
+     * @param file        in which the bitmap is persisted, usually next to the database
+     * @return the bitmap
+     * @throws IOException if an error occurs while reading the database or reading or writing the file
+     */
+    public static IcaoAddressBitmap load(String zipFileName, Path file) throws IOException {
+        long checksum = AircraftDatabaseCompiler.sourceChecksum(zipFileName);
+        if (Files.isRegularFile(file) && Files.size(file) == FILE_BYTES) {
+            IcaoAddressBitmap bitmap = new IcaoAddressBitmap(checksum);
+            ByteBuffer buffer = ByteBuffer.allocate(FILE_BYTES);
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                while (buffer.hasRemaining()) {
+                    if (channel.read(buffer) < 0) break;
+                }
+            }
+            buffer.flip();
+            if (buffer.remaining() == FILE_BYTES && buffer.getInt() == MAGIC && buffer.getLong() == checksum) {
+                buffer.asLongBuffer().get(bitmap.words);
+                return bitmap;
+            }
+        }
+        IcaoAddressBitmap bitmap = of(zipFileName);
+        bitmap.write(file);
+        return bitmap;
+    }
+
+    /**
+     * Writes the bitmap in the given file, through a uniquely named temporary file moved atomically,
+     * which is deleted if the writing fails
+     *
+     * @param file in which the bitmap is persisted
+     * @throws IOException if an error occurs while writing the file
+     */
+    public void write(Path file) throws IOException {
+        Path absoluteFile = file.toAbsolutePath();
+        ByteBuffer buffer = ByteBuffer.allocate(FILE_BYTES);
+        buffer.putInt(MAGIC).putLong(sourceChecksum).asLongBuffer().put(words);
+        buffer.rewind();
+        Path temporary = Files.createTempFile(absoluteFile.getParent(),
+                absoluteFile.getFileName().toString(), TEMPORARY_SUFFIX);
+        try {
+            try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.WRITE)) {
+                while (buffer.hasRemaining()) channel.write(buffer);
+            }
+            Files.move(temporary, absoluteFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temporary);
+            throw e;
+        }
+    }
+
+    /**
+     * Checks if the given address is present in the database
+     *
+     * @param address aircraft's ICAO address
+     * @return false if the address is certainly absent from the database, otherwise true
+     */
+    public boolean contains(IcaoAddress address) {
+        int key = AircraftCsv.key(address);
+        return key != AircraftCsv.NO_KEY && (words[key >>> WORD_BITS] & (1L << (key & WORD_MASK))) != 0;
+    }
+
+    /**
+     * Returns the number of addresses present in the bitmap
+     *
+     * @return the number of addresses
+     */
+    public int count() {
+        int count = 0;
+        for (long word : words) count += Long.bitCount(word);
+        return count;
+    }
+}
@@ -0,0 +1,69 @@
+package ch.epfl.javions.aircraft;
+
+import java.io.IOException;
+import java.util.Objects;
+
+/**
+ * Represents the aircraft mictronics database entirely loaded in memory. The file is read once,
+ * and the lookups are then binary searches in sorted primitive arrays, without any input/output.
+ *
+ * @author Ünlüer Asli (329696)
+ * @author Berlin Nicolas (355535)
+ */
+public final class IndexedAircraftDatabase implements AircraftDataSource {
+    private final AircraftTable table;
+    private final long loadTimeNs;
+
+    /**
+     * Constructs the database by loading all the aircraft of the given file
+     *
+     * @param fileName name of file resources
+     * @throws NullPointerException if the fileName is null
+     * @throws IOException          if an error occurs while reading the file
+     */
+    public IndexedAircraftDatabase(String fileName) throws IOException {
+        Objects.requireNonNull(fileName);
+        long startTime = System.nanoTime();
+        this.table = AircraftTable.load(fileName);
+        this.loadTimeNs = System.nanoTime() - startTime;
+    }
+
+    /**
+     * Gets information about the aircraft with the ICAO address
+     *
+     * @param address aircraft's ICAO address
+     * @return null if the aircraft does not exist in the database
+     */
+    @Override
+    public AircraftData get(IcaoAddress address) {
+        int index = table.indexOf(AircraftCsv.key(address));
+        return index < 0 ? null : table.dataAt(index);
+    }
+
+    /**
+     * Returns the number of aircraft of the database
+     *
+     * @return the number of aircraft
+     */
+    public int size() {
+        return table.size();
+    }
+
+    /**
+     * Returns the number of bytes occupied in memory by the database
+     *
+     * @return the memory footprint in bytes
+     */
+    public long memoryFootprint() {
+        return table.byteSize();
+    }
+
+    /**
+     * Returns the time taken to load the database
+     *
+     * @return the load time in nanoseconds
+     */
+    public long loadTimeNs() {
+        return loadTimeNs;
+    }
+}
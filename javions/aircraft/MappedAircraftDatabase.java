@@ -0,0 +1,135 @@
+package ch.epfl.javions.aircraft;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Objects;
+
+import static ch.epfl.javions.aircraft.AircraftDatabaseCompiler.*;
+
+/**
+ * Represents the aircraft mictronics database compiled into a binary file by the AircraftDatabaseCompiler.
+ * The file is memory-mapped and searched in place, so that nothing is copied in the heap and the opening
+ * of the database costs nearly nothing.
+ *
+ * @author Ünlüer Asli (329696)
+ * @author Berlin Nicolas (355535)
+ */
+public final class MappedAircraftDatabase implements AircraftDataSource {
+    private static final WakeTurbulenceCategory[] CATEGORIES = WakeTurbulenceCategory.values();
+    private static final int UNSIGNED_SHORT_MASK = 0xFFFF;
+
+    private final ByteBuffer buffer;
+    private final int size;
+    private final int heapStart;
+
+    /**
+     * Constructs the database by mapping the given binary file
+     *
+     * @param file binary file written by the AircraftDatabaseCompiler
+     * @throws NullPointerException if the file is null
+     * @throws IOException          if an error occurs while mapping the file, if it is not a database written
+     *                              by the current version of the compiler or if its size does not match its header,
+     *                              for example because it is truncated
+     */
+    public MappedAircraftDatabase(Path file) throws IOException {
+        Objects.requireNonNull(file);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            this.buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        if (buffer.capacity() < HEADER_BYTES || buffer.getInt(0) != MAGIC || buffer.getInt(Integer.BYTES) != VERSION)
+            throw new IOException("Invalid aircraft database file " + file);
+        this.size = buffer.getInt(COUNT_POSITION);
+        int heapSize = buffer.getInt(HEAP_SIZE_POSITION);
+        if (size < 0 || heapSize < 0 || buffer.capacity() != HEADER_BYTES + (long) size * ENTRY_BYTES + heapSize)
+            throw new IOException("Corrupted aircraft database file " + file + ": its size is "
+                    + buffer.capacity() + " bytes instead of the size given by its header");
+        this.heapStart = HEADER_BYTES + size * ENTRY_BYTES;
+    }
+
+    /**
+     * Opens the binary database compiled from the given zip file, compiling it first
+     * if it does not exist or if it is stale
+     *
+     * @param zipFileName name of the zip file of the database
+     * @param file        binary file of the database
+     * @return the database
+     * @throws IOException if an error occurs while compiling or mapping the file, or if the mapped file
+     *                     is not valid or has not been compiled from the current content of the zip file,
+     *                     for example because it has been replaced meanwhile
+     */
+    public static MappedAircraftDatabase open(String zipFileName, Path file) throws IOException {
+        if (!AircraftDatabaseCompiler.isUpToDate(zipFileName, file))
+            AircraftDatabaseCompiler.compile(zipFileName, file);
+        MappedAircraftDatabase database = new MappedAircraftDatabase(file);
+        if (database.checksum() != AircraftDatabaseCompiler.sourceChecksum(zipFileName))
+            throw new IOException("Aircraft database file " + file + " has not been compiled from " + zipFileName);
+        return database;
+    }
+
+    /**
+     * Gets information about the aircraft with the ICAO address, by binary search in the mapped index
+     *
+     * @param address aircraft's ICAO address
+     * @return null if the aircraft does not exist in the database
+     */
+    @Override
+    public AircraftData get(IcaoAddress address) {
+        int key = AircraftCsv.key(address);
+        if (key == AircraftCsv.NO_KEY) return null;
+        int low = 0;
+        int high = size - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int entry = HEADER_BYTES + middle * ENTRY_BYTES;
+            int middleKey = buffer.getInt(entry);
+            if (middleKey < key) {
+                low = middle + 1;
+            } else if (middleKey > key) {
+                high = middle - 1;
+            } else {
+                return dataAt(heapStart + buffer.getInt(entry + Integer.BYTES));
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns the number of aircraft of the database
+     *
+     * @return the number of aircraft
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the checksum of the database from which the file has been compiled
+     *
+     * @return the checksum stored in the header of the file
+     */
+    long checksum() {
+        return buffer.getLong(CHECKSUM_POSITION);
+    }
+
+    private AircraftData dataAt(int position) {
+        WakeTurbulenceCategory category = CATEGORIES[buffer.get(position)];
+        String[] strings = new String[AircraftTable.STRING_FIELDS];
+        int current = position + Byte.BYTES;
+        for (int field = 0; field < strings.length; field++) {
+            int length = buffer.getShort(current) & UNSIGNED_SHORT_MASK;
+            byte[] bytes = new byte[length];
+            buffer.get(current + Short.BYTES, bytes);
+            strings[field] = new String(bytes, StandardCharsets.UTF_8);
+            current += Short.BYTES + length;
+        }
+        return new AircraftData(new AircraftRegistration(strings[0]),
+                new AircraftTypeDesignator(strings[1]),
+                strings[2],
+                new AircraftDescription(strings[3]),
+                category);
+    }
+}
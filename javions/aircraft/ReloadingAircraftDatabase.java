@@ -0,0 +1,171 @@
+package ch.epfl.javions.aircraft;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Represents an aircraft database that is reloaded when its file changes. The file is watched by a
+ * background thread which loads the new version of the database and then swaps it atomically with the
+ * current one, so that the lookups are never blocked and always see a complete database. The first version
+ * is also loaded by this thread, so that constructing the database returns immediately, the lookups finding
+ * no aircraft until it is loaded.
+ *
+ * @author Ünlüer Asli (329696)
+ * @author Berlin Nicolas (355535)
+ */
+public final class ReloadingAircraftDatabase implements AircraftDataSource, Closeable {
+    private static final long QUIET_PERIOD_MS = 2_000;
+    private static final AircraftDataSource EMPTY_DATABASE = address -> null;
+
+    private final Path file;
+    private final Loader loader;
+    private final WatchService watchService;
+    private volatile AircraftDataSource database = EMPTY_DATABASE;
+    private volatile int reloadCount;
+    private volatile IOException lastError;
+
+    /**
+     * Represents a function that loads the database stored in a file
+     *
+     * @author Ünlüer Asli (329696)
+     * @author Berlin Nicolas (355535)
+     */
+    @FunctionalInterface
+    public interface Loader {
+        /**
+         * Loads the database stored in the given file
+         *
+         * @param file of the database
+         * @return the database
+         * @throws IOException if an error occurs while reading the file
+         */
+        AircraftDataSource load(Path file) throws IOException;
+    }
+
+    /**
+     * Constructs the database and starts watching the given file, its first version being loaded in the
+     * background. The databases replaced by a reload are not closed, as lookups may still be using them, so the
+     * loader should produce databases that do not hold resources, like IndexedAircraftDatabase or
+     * MappedAircraftDatabase.
+     *
+     * @param file   of the database
+     * @param loader function that loads the database stored in the file
+     * @throws NullPointerException if the file or the loader is null
+     * @throws IOException          if an error occurs while watching the directory of the file
+     */
+    public ReloadingAircraftDatabase(Path file, Loader loader) throws IOException {
+        this.file = file.toAbsolutePath();
+        this.loader = Objects.requireNonNull(loader);
+        this.watchService = this.file.getFileSystem().newWatchService();
+        this.file.getParent().register(watchService,
+                StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+
+        Thread watcher = new Thread(this::watch, "aircraft-database-watcher");
+        watcher.setDaemon(true);
+        watcher.start();
+    }
+
+    /**
+     * Gets information about the aircraft with the ICAO address from the current version of the database
+     *
+     * @param address aircraft's ICAO address
+     * @return null if the aircraft does not exist in the database
+     * @throws IOException if an error occurs while reading the database
+     */
+    @Override
+    public AircraftData get(IcaoAddress address) throws IOException {
+        return database.get(address);
+    }
+
+    /**
+     * Returns true if and only if a version of the database has been loaded
+     *
+     * @return true if a version of the database has been loaded, false if the lookups find no aircraft yet
+     */
+    public boolean isLoaded() {
+        return database != EMPTY_DATABASE;
+    }
+
+    /**
+     * Returns the number of times the database has been reloaded, the loading of its first version excluded
+     *
+     * @return the number of reloads
+     */
+    public int reloadCount() {
+        return reloadCount;
+    }
+
+    /**
+     * Returns the error of the last loading or reload that failed, in which case the previous version,
+     * if any, is still used.
+     * A runtime exception thrown by the loader, for example on a malformed line, is wrapped in an IOException.
+     *
+     * @return the error of the last failed reload, or null if the last reload succeeded
+     */
+    public IOException lastError() {
+        return lastError;
+    }
+
+    /**
+     * Stops watching the file of the database
+     *
+     * @throws IOException if an error occurs while closing the watch service
+     */
+    @Override
+    public void close() throws IOException {
+        watchService.close();
+    }
+
+    private void watch() {
+        load();
+        try {
+            while (true) {
+                if (concernsFile(watchService.take())) {
+                    waitQuietPeriod();
+                    boolean wasLoaded = isLoaded();
+                    if (load() && wasLoaded) reloadCount++;
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void waitQuietPeriod() throws InterruptedException {
+        WatchKey key;
+        while ((key = watchService.poll(QUIET_PERIOD_MS, TimeUnit.MILLISECONDS)) != null) {
+            concernsFile(key);
+        }
+    }
+
+    private boolean concernsFile(WatchKey key) {
+        boolean concernsFile = false;
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (file.getFileName().equals(event.context())) concernsFile = true;
+        }
+        key.reset();
+        return concernsFile;
+    }
+
+    private boolean load() {
+        try {
+            database = Objects.requireNonNull(loader.load(file));
+            lastError = null;
+            return true;
+        } catch (IOException e) {
+            lastError = e;
+        } catch (RuntimeException e) {
+            // a malformed or partially written file must not stop the watcher
+            lastError = new IOException("Invalid aircraft database " + file, e);
+        }
+        return false;
+    }
+}
@@ -0,0 +1,139 @@
+package ch.epfl.javions.aircraft;
+
+import ch.epfl.javions.Preconditions;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Represents the aircraft mictronics database read shard by shard. The zip file stays open and the
+ * CSV files (the shards) that have been read are kept decoded in memory as sorted arrays, within a
+ * memory budget. When the budget is exceeded, the least recently used shards are evicted.
+ *
+ * @author Ünlüer Asli (329696)
+ * @author Berlin Nicolas (355535)
+ */
+public final class ShardCachedAircraftDatabase implements AircraftDataSource, Closeable {
+    private static final int LENGTH_ICAO_ADDRESS = 6;
+    private static final int LENGTH_SHARD_NAME = 2;
+    private static final int NUMBER_OF_SHARDS = 256;
+
+    private final ZipFile zipFile;
+    private final long memoryBudget;
+    private final LinkedHashMap<String, AircraftTable> shards = new LinkedHashMap<>(
+            NUMBER_OF_SHARDS, 0.75f, true);
+    private long cachedBytes;
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    /**
+     * Constructs the database and opens its file
+     *
+     * @param fileName     name of file resources
+     * @param memoryBudget maximum number of bytes occupied by the decoded shards
+     * @throws NullPointerException     if the fileName is null
+     * @throws IllegalArgumentException if the memory budget is not strictly positive
+     * @throws IOException              if an error occurs while opening the file
+     */
+    public ShardCachedAircraftDatabase(String fileName, long memoryBudget) throws IOException {
+        Preconditions.checkArgument(memoryBudget > 0);
+        this.zipFile = new ZipFile(Objects.requireNonNull(fileName));
+        this.memoryBudget = memoryBudget;
+    }
+
+    /**
+     * Gets information about the aircraft with the ICAO address, decoding its shard if it is not cached
+     *
+     * @param address aircraft's ICAO address
+     * @return null if the aircraft does not exist in the file
+     * @throws IOException if an error occurs while reading the file
+     */
+    @Override
+    public synchronized AircraftData get(IcaoAddress address) throws IOException {
+        String shardName = address.string().substring(LENGTH_ICAO_ADDRESS - LENGTH_SHARD_NAME);
+        AircraftTable shard = shards.get(shardName);
+        if (shard == null) {
+            misses++;
+            shard = loadShard(shardName);
+            shards.put(shardName, shard);
+            cachedBytes += shard.byteSize();
+            evictLeastRecentlyUsed();
+        } else {
+            hits++;
+        }
+        int index = shard.indexOf(AircraftCsv.key(address));
+        return index < 0 ? null : shard.dataAt(index);
+    }
+
+    /**
+     * Returns the number of lookups answered by a shard already in memory
+     *
+     * @return the number of cache hits
+     */
+    public synchronized long hits() {
+        return hits;
+    }
+
+    /**
+     * Returns the number of lookups that required to decode a shard
+     *
+     * @return the number of cache misses
+     */
+    public synchronized long misses() {
+        return misses;
+    }
+
+    /**
+     * Returns the number of shards evicted to respect the memory budget
+     *
+     * @return the number of evictions
+     */
+    public synchronized long evictions() {
+        return evictions;
+    }
+
+    /**
+     * Returns the number of bytes occupied by the decoded shards
+     *
+     * @return the number of cached bytes
+     */
+    public synchronized long cachedBytes() {
+        return cachedBytes;
+    }
+
+    /**
+     * Closes the file of the database and empties the cache
+     *
+     * @throws IOException if an error occurs while closing the file
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        shards.clear();
+        cachedBytes = 0;
+        zipFile.close();
+    }
+
+    private AircraftTable loadShard(String shardName) throws IOException {
+        AircraftTable.Builder builder = new AircraftTable.Builder();
+        ZipEntry entry = zipFile.getEntry(shardName + AircraftCsv.FORMAT);
+        if (entry != null)
+            AircraftCsv.forEachLine(zipFile, entry, line -> builder.add(AircraftCsv.fields(line)));
+        return builder.build();
+    }
+
+    private void evictLeastRecentlyUsed() {
+        Iterator<Map.Entry<String, AircraftTable>> iterator = shards.entrySet().iterator();
+        while (cachedBytes > memoryBudget && shards.size() > 1) {
+            cachedBytes -= iterator.next().getValue().byteSize();
+            iterator.remove();
+            evictions++;
+        }
+    }
+}
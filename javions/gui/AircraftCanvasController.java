@@ -0,0 +1,307 @@
+package ch.epfl.javions.gui;
+
+import ch.epfl.javions.GeoPos;
+import ch.epfl.javions.Preconditions;
+import ch.epfl.javions.Units;
+import ch.epfl.javions.adsb.CallSign;
+import javafx.application.Platform;
+import javafx.beans.InvalidationListener;
+import javafx.beans.property.ObjectProperty;
+import javafx.collections.ObservableSet;
+import javafx.collections.SetChangeListener;
+import javafx.event.EventHandler;
+import javafx.geometry.VPos;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.input.MouseEvent;
+import javafx.scene.layout.Pane;
+import javafx.scene.paint.Color;
+import javafx.scene.paint.LinearGradient;
+import javafx.scene.paint.Stop;
+import javafx.scene.text.Font;
+import javafx.scene.text.Text;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+import static ch.epfl.javions.WebMercator.x;
+import static ch.epfl.javions.WebMercator.y;
+import static javafx.scene.paint.CycleMethod.NO_CYCLE;
+
+/**
+ * Manages the view of aircraft on the world map, drawn in a single canvas instead of a group of nodes per
+ * aircraft. The icons, the labels and the trajectory of the selected aircraft are redrawn from the current
+ * states on the pulse following a change, the trajectory being simplified for the zoom level and the
+ * aircraft being drawn by increasing altitude like the nodes of AircraftController. The icons are copied
+ * from an atlas of pre-rasterized icons, with 32 colors and a heading step of 5 degrees. Only the aircraft in
+ * or near the canvas are drawn, and the messages of the other aircraft do not cause a redraw. A click on an icon
+ * selects its aircraft, while the other mouse events go through the canvas to the map below.
+ * A canvas can not be styled by a stylesheet, so the labels are drawn with constants of this class matching
+ * the look given by aircraft.css to the labels of AircraftController.
+ *
+ * @author Ünlüer Asli (329696)
+ * @author Berlin Nicolas (355535)
+ */
+public final class AircraftCanvasController {
+    private static final double TRAJECTORY_WIDTH = 2;
+    private static final double LABEL_PADDING = 2;
+    private static final Color LABEL_BACKGROUND = Color.rgb(255, 255, 255, 0.5);
+    private static final Font LABEL_FONT = Font.font(10);
+    private static final double HIT_RADIUS = 12;
+    private static final Comparator<ObservableAircraftState> BY_ALTITUDE =
+            Comparator.comparingDouble(state -> Double.isNaN(state.getAltitude())
+                    ? Double.NEGATIVE_INFINITY
+                    : state.getAltitude());
+
+    private final MapParameters mapParameters;
+    private final ObservableSet<ObservableAircraftState> aircraftStateSet;
+    private final ObjectProperty<ObservableAircraftState> selectedAircraftState;
+    private final Canvas canvas = new Canvas();
+    private final Pane pane = new Pane(canvas);
+    private final GraphicsContext graphicsContext = canvas.getGraphicsContext2D();
+    private final InvalidationListener redrawListener = observable -> redrawOnNextPulse();
+    private final EventHandler<MouseEvent> clickFilter = this::selectClickedAircraft;
+    private final AircraftIconAtlas iconAtlas = new AircraftIconAtlas(AircraftController.ALTITUDE_COLOR_RAMP,
+            AircraftController.ICON_COLOR_BUCKETS, AircraftController.ICON_HEADING_STEP);
+    private final Map<ObservableAircraftState, Label> labels = new HashMap<>();
+    private final Map<ObservableAircraftState, TrajectorySimplifier> trajectorySimplifiers = new HashMap<>();
+    private final Text labelMeasure = new Text();
+    private final Map<ObservableAircraftState, InvalidationListener> updateListeners = new IdentityHashMap<>();
+    private final List<ObservableAircraftState> drawnAircraft = new ArrayList<>();
+    private final Set<ObservableAircraftState> drawnAircraftSet = Collections.newSetFromMap(new IdentityHashMap<>());
+    private double[] drawnX = new double[0];
+    private double[] drawnY = new double[0];
+    private boolean redrawNeeded;
+
+    /**
+     * Constructs a view of aircraft on world map
+     *
+     * @param mapParameters         parameters of the visible map
+     * @param aircraftStateSet      set of the aircraft's states which should appear on the view
+     * @param selectedAircraftState contains the state of the selected aircraft, it can be null
+     *                              if no aircraft is selected
+     * @throws IllegalArgumentException when aircraft state's is not an empty set
+     */
+    public AircraftCanvasController(MapParameters mapParameters,
+                                    ObservableSet<ObservableAircraftState> aircraftStateSet,
+                                    ObjectProperty<ObservableAircraftState> selectedAircraftState) {
+        Preconditions.checkArgument(aircraftStateSet.isEmpty());
+        this.mapParameters = mapParameters;
+        this.aircraftStateSet = aircraftStateSet;
+        this.selectedAircraftState = selectedAircraftState;
+        labelMeasure.setFont(LABEL_FONT);
+        canvas.widthProperty().bind(pane.widthProperty());
+        canvas.heightProperty().bind(pane.heightProperty());
+        pane.setMouseTransparent(true);
+        addListeners();
+    }
+
+    /**
+     * Returns the pane on which the aircraft is shown.
+     *
+     * @return the pane on which there is a world map with aircraft to be shown.
+     */
+    public Pane pane() {
+        return pane;
+    }
+
+    /**
+     * Returns the atlas of the icons drawn by the view, to report its memory and its build time
+     *
+     * @return the atlas of the icons
+     */
+    public AircraftIconAtlas iconAtlas() {
+        return iconAtlas;
+    }
+
+    private void addListeners() {
+        aircraftStateSet.addListener((SetChangeListener<ObservableAircraftState>) change -> {
+            if (change.wasAdded()) {
+                ObservableAircraftState addedAircraft = change.getElementAdded();
+                InvalidationListener updateListener = observable -> {
+                    if (isDrawn(addedAircraft)) redrawOnNextPulse();
+                };
+                updateListeners.put(addedAircraft, updateListener);
+                addedAircraft.lastMessageTimeStampNsProperty().addListener(updateListener);
+            }
+            if (change.wasRemoved()) {
+                ObservableAircraftState removedAircraft = change.getElementRemoved();
+                removedAircraft.lastMessageTimeStampNsProperty()
+                        .removeListener(updateListeners.remove(removedAircraft));
+                labels.remove(removedAircraft);
+                TrajectorySimplifier simplifier = trajectorySimplifiers.remove(removedAircraft);
+                if (simplifier != null) simplifier.dispose();
+            }
+            redrawOnNextPulse();
+        });
+        selectedAircraftState.addListener(redrawListener);
+        mapParameters.minXProperty().addListener(redrawListener);
+        mapParameters.minYProperty().addListener(redrawListener);
+        mapParameters.zoomProperty().addListener(redrawListener);
+        canvas.widthProperty().addListener(redrawListener);
+        canvas.heightProperty().addListener(redrawListener);
+
+        canvas.sceneProperty().addListener((p, oldS, newS) -> {
+            assert oldS == null;
+            newS.addPreLayoutPulseListener(this::redrawIfNeeded);
+        });
+        pane.parentProperty().addListener((p, oldParent, newParent) -> {
+            if (oldParent != null) oldParent.removeEventFilter(MouseEvent.MOUSE_CLICKED, clickFilter);
+            if (newParent != null) newParent.addEventFilter(MouseEvent.MOUSE_CLICKED, clickFilter);
+        });
+    }
+
+    private boolean isDrawn(ObservableAircraftState aircraftState) {
+        return drawnAircraftSet.contains(aircraftState)
+                || aircraftState.equals(selectedAircraftState.get())
+                || isNearCanvas(aircraftState);
+    }
+
+    private boolean isNearCanvas(ObservableAircraftState aircraftState) {
+        return AircraftController.isNearViewport(aircraftState.getPosition(), mapParameters,
+                canvas.getWidth(), canvas.getHeight(), AircraftController.VIEWPORT_MARGIN);
+    }
+
+    private void redrawOnNextPulse() {
+        redrawNeeded = true;
+        Platform.requestNextPulse();
+    }
+
+    private void redrawIfNeeded() {
+        if (!redrawNeeded) return;
+        redrawNeeded = false;
+        double width = canvas.getWidth();
+        double height = canvas.getHeight();
+        graphicsContext.clearRect(0, 0, width, height);
+
+        int zoom = mapParameters.getZoom();
+        double minX = mapParameters.getMinX();
+        double minY = mapParameters.getMinY();
+        ObservableAircraftState selected = selectedAircraftState.get();
+        boolean labelsVisible = zoom >= AircraftController.ZOOM_LEVEL;
+
+        drawnAircraft.clear();
+        for (ObservableAircraftState aircraftState : aircraftStateSet) {
+            if (isNearCanvas(aircraftState)) drawnAircraft.add(aircraftState);
+        }
+        drawnAircraftSet.clear();
+        drawnAircraftSet.addAll(drawnAircraft);
+        drawnAircraft.sort(BY_ALTITUDE);
+        if (drawnX.length < drawnAircraft.size()) {
+            drawnX = new double[drawnAircraft.size() * 2];
+            drawnY = new double[drawnAircraft.size() * 2];
+        }
+
+        if (selected != null && aircraftStateSet.contains(selected)) drawTrajectory(selected, zoom, minX, minY);
+        for (int i = 0; i < drawnAircraft.size(); i++) {
+            ObservableAircraftState aircraftState = drawnAircraft.get(i);
+            GeoPos position = aircraftState.getPosition();
+            double x = x(zoom, position.longitude()) - minX;
+            double y = y(zoom, position.latitude()) - minY;
+            drawnX[i] = x;
+            drawnY[i] = y;
+            if (labelsVisible || aircraftState.equals(selected)) drawLabel(aircraftState, x, y);
+            drawIcon(aircraftState, x, y);
+        }
+    }
+
+    private void drawTrajectory(ObservableAircraftState aircraftState, int zoom, double minX, double minY) {
+        List<ObservableAircraftState.AirbornePos> trajectory = aircraftState.getTrajectory();
+        TrajectorySimplifier simplifier =
+                trajectorySimplifiers.computeIfAbsent(aircraftState, TrajectorySimplifier::new);
+        int size = simplifier.size(zoom);
+        if (size < 2) return;
+        graphicsContext.setLineWidth(TRAJECTORY_WIDTH);
+        ObservableAircraftState.AirbornePos previous = trajectory.get(simplifier.index(zoom, 0));
+        double previousX = x(zoom, previous.position().longitude()) - minX;
+        double previousY = y(zoom, previous.position().latitude()) - minY;
+        boolean runOpen = false;
+        for (int i = 1; i < size; i++) {
+            ObservableAircraftState.AirbornePos next = trajectory.get(simplifier.index(zoom, i));
+            double nextX = x(zoom, next.position().longitude()) - minX;
+            double nextY = y(zoom, next.position().latitude()) - minY;
+            if (previous.altitude() == next.altitude()) {
+                if (!runOpen) {
+                    graphicsContext.beginPath();
+                    graphicsContext.moveTo(previousX, previousY);
+                    runOpen = true;
+                }
+                graphicsContext.lineTo(nextX, nextY);
+            } else {
+                if (runOpen) strokeRun(previous.altitude());
+                runOpen = false;
+                Color firstColor = AircraftController.getColorForCalculatedAltitude(previous.altitude());
+                Color secondColor = AircraftController.getColorForCalculatedAltitude(next.altitude());
+                graphicsContext.setStroke(new LinearGradient(previousX, previousY, nextX, nextY,
+                        false, NO_CYCLE, new Stop(0, firstColor), new Stop(1, secondColor)));
+                graphicsContext.strokeLine(previousX, previousY, nextX, nextY);
+            }
+            previous = next;
+            previousX = nextX;
+            previousY = nextY;
+        }
+        if (runOpen) strokeRun(previous.altitude());
+    }
+
+    private void strokeRun(double altitude) {
+        graphicsContext.setStroke(AircraftController.getColorForCalculatedAltitude(altitude));
+        graphicsContext.stroke();
+    }
+
+    private void drawLabel(ObservableAircraftState aircraftState, double x, double y) {
+        Label label = labels.get(aircraftState);
+        if (label == null || !label.isFor(aircraftState)) {
+            String text = AircraftController.labelText(aircraftState);
+            labelMeasure.setText(text);
+            label = new Label(aircraftState.getAltitude(), aircraftState.getVelocity(), aircraftState.getCallSign(),
+                    text, labelMeasure.getLayoutBounds().getWidth() + 2 * LABEL_PADDING,
+                    labelMeasure.getLayoutBounds().getHeight() + 2 * LABEL_PADDING);
+            labels.put(aircraftState, label);
+        }
+        graphicsContext.setFill(LABEL_BACKGROUND);
+        graphicsContext.fillRect(x, y, label.width(), label.height());
+        graphicsContext.setFill(Color.BLACK);
+        graphicsContext.setFont(LABEL_FONT);
+        graphicsContext.setTextBaseline(VPos.TOP);
+        graphicsContext.fillText(label.text(), x + LABEL_PADDING, y + LABEL_PADDING);
+    }
+
+    private void drawIcon(ObservableAircraftState aircraftState, double x, double y) {
+        AircraftIcon icon = AircraftController.iconFor(aircraftState.getAircraftData(), aircraftState.getCategory());
+        iconAtlas.draw(graphicsContext, icon,
+                AircraftController.altitudeColorIndex(aircraftState.getAltitude()),
+                Units.convertTo(aircraftState.getTrackOrHeading(), Units.Angle.DEGREE), x, y);
+    }
+
+    private void selectClickedAircraft(MouseEvent event) {
+        if (!event.isStillSincePress()) return;
+        double x = event.getX() - pane.getLayoutX();
+        double y = event.getY() - pane.getLayoutY();
+        for (int i = drawnAircraft.size() - 1; i >= 0; i--) {
+            double dx = drawnX[i] - x;
+            double dy = drawnY[i] - y;
+            if (dx * dx + dy * dy <= HIT_RADIUS * HIT_RADIUS) {
+                selectedAircraftState.set(drawnAircraft.get(i));
+                event.consume();
+                return;
+            }
+        }
+    }
+
+    private record Label(double altitude, double velocity, CallSign callSign,
+                         String text, double width, double height) {
+
+        private boolean isFor(ObservableAircraftState aircraftState) {
+            return Double.compare(altitude, aircraftState.getAltitude()) == 0
+                    && Double.compare(velocity, aircraftState.getVelocity()) == 0
+                    && Objects.equals(callSign, aircraftState.getCallSign());
+        }
+    }
+}
@@ -0,0 +1,208 @@
+package ch.epfl.javions.gui;
+
+import ch.epfl.javions.GeoPos;
+import javafx.scene.Group;
+import javafx.scene.layout.StackPane;
+import javafx.scene.paint.Color;
+import javafx.scene.shape.Circle;
+import javafx.scene.text.Font;
+import javafx.scene.text.FontWeight;
+import javafx.scene.text.Text;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Set;
+
+import static ch.epfl.javions.WebMercator.x;
+import static ch.epfl.javions.WebMercator.y;
+
+/**
+ * Manages the clusters of aircraft shown instead of the aircraft at low zoom levels. The aircraft are grouped
+ * by the cell of a grid of the map at the zoom level of the clusters, and every cell containing aircraft is
+ * shown as a badge giving their number, placed at their mean position. The cells are updated incrementally when
+ * an aircraft moves, and only the badges of the cells that changed are updated, so that the number of nodes and
+ * of updates of the nodes is bounded by the number of cells. A click on a badge zooms on it up to the zoom level
+ * at which the aircraft are shown individually.
+ *
+ * @author Ünlüer Asli (329696)
+ * @author Berlin Nicolas (355535)
+ */
+final class AircraftClusterView {
+    private static final double CELL_SIZE = 64;
+    private static final double BADGE_RADIUS = 10;
+    private static final double BADGE_RADIUS_PER_DIGIT = 3;
+    private static final Color BADGE_FILL = Color.rgb(13, 8, 135, 0.8);
+    private static final Color BADGE_TEXT_FILL = Color.WHITE;
+    private static final Font BADGE_FONT = Font.font(null, FontWeight.BOLD, 11);
+    private final Group group;
+    private final MapParameters mapParameters;
+    private final int detailZoom;
+    private final Map<ObservableAircraftState, Member> members = new IdentityHashMap<>();
+    private final Map<Long, Cell> cells = new HashMap<>();
+    private final Set<Long> changedCells = new HashSet<>();
+    private int zoom;
+
+    /**
+     * Constructs the view of the clusters of aircraft, initially empty
+     *
+     * @param group         in which the badges of the clusters are placed, at the coordinates of the map
+     * @param mapParameters parameters of the map
+     * @param detailZoom    zoom level at which the aircraft are shown individually, reached by clicking a badge
+     */
+    AircraftClusterView(Group group, MapParameters mapParameters, int detailZoom) {
+        this.group = group;
+        this.mapParameters = mapParameters;
+        this.detailZoom = detailZoom;
+        this.zoom = mapParameters.getZoom();
+    }
+
+    /**
+     * Returns the zoom level at which the aircraft are grouped in cells
+     *
+     * @return the zoom level of the clusters
+     */
+    int zoom() {
+        return zoom;
+    }
+
+    /**
+     * Returns the number of cells containing aircraft
+     *
+     * @return the number of cells containing aircraft
+     */
+    int cells() {
+        return cells.size();
+    }
+
+    /**
+     * Groups again the given aircraft in cells at the current zoom level of the map
+     *
+     * @param aircraftStates states of the aircraft
+     */
+    void rebuild(Iterable<ObservableAircraftState> aircraftStates) {
+        clear();
+        zoom = mapParameters.getZoom();
+        for (ObservableAircraftState aircraftState : aircraftStates) update(aircraftState);
+    }
+
+    /**
+     * Removes all the aircraft and the badges of the clusters
+     */
+    void clear() {
+        members.clear();
+        cells.clear();
+        changedCells.clear();
+        group.getChildren().clear();
+    }
+
+    /**
+     * Moves an aircraft to the cell of its current position, or adds it if it is not in a cell yet.
+     * The badges are updated by the next call to updateBadges.
+     *
+     * @param aircraftState state of the aircraft
+     */
+    void update(ObservableAircraftState aircraftState) {
+        GeoPos position = aircraftState.getPosition();
+        if (position == null) {
+            remove(aircraftState);
+            return;
+        }
+        double x = x(zoom, position.longitude());
+        double y = y(zoom, position.latitude());
+        Member member = new Member(cellKey(x, y), x, y);
+        Member oldMember = members.put(aircraftState, member);
+        if (oldMember != null) leave(oldMember);
+        Cell cell = cells.computeIfAbsent(member.cellKey(), key -> new Cell());
+        cell.count++;
+        cell.sumX += x;
+        cell.sumY += y;
+        changedCells.add(member.cellKey());
+    }
+
+    /**
+     * Removes an aircraft from its cell. The badges are updated by the next call to updateBadges.
+     *
+     * @param aircraftState state of the aircraft
+     */
+    void remove(ObservableAircraftState aircraftState) {
+        Member member = members.remove(aircraftState);
+        if (member != null) leave(member);
+    }
+
+    /**
+     * Updates the badges of the cells that changed since the last call
+     */
+    void updateBadges() {
+        for (long cellKey : changedCells) {
+            Cell cell = cells.get(cellKey);
+            if (cell == null) continue;
+            if (cell.count == 0) {
+                if (cell.badge != null) group.getChildren().remove(cell.badge);
+                cells.remove(cellKey);
+                continue;
+            }
+            if (cell.badge == null) createBadge(cell);
+            String count = Integer.toString(cell.count);
+            double radius = BADGE_RADIUS + BADGE_RADIUS_PER_DIGIT * count.length();
+            cell.text.setText(count);
+            cell.circle.setRadius(radius);
+            cell.badge.resizeRelocate(cell.sumX / cell.count - radius, cell.sumY / cell.count - radius,
+                    2 * radius, 2 * radius);
+        }
+        changedCells.clear();
+    }
+
+    private void leave(Member member) {
+        Cell cell = cells.get(member.cellKey());
+        cell.count--;
+        cell.sumX -= member.x();
+        cell.sumY -= member.y();
+        changedCells.add(member.cellKey());
+    }
+
+    private void createBadge(Cell cell) {
+        cell.circle = new Circle(BADGE_RADIUS, BADGE_FILL);
+        cell.text = new Text();
+        cell.text.setFont(BADGE_FONT);
+        cell.text.setFill(BADGE_TEXT_FILL);
+        cell.badge = new StackPane(cell.circle, cell.text);
+        cell.badge.setManaged(false);
+        cell.badge.setOnMouseClicked(event -> {
+            double x = cell.sumX / cell.count - mapParameters.getMinX();
+            double y = cell.sumY / cell.count - mapParameters.getMinY();
+            mapParameters.scroll(x, y);
+            mapParameters.changeZoomLevel(detailZoom - mapParameters.getZoom());
+            mapParameters.scroll(-x, -y);
+        });
+        group.getChildren().add(cell.badge);
+    }
+
+    private static long cellKey(double x, double y) {
+        long cellX = (long) Math.floor(x / CELL_SIZE);
+        long cellY = (long) Math.floor(y / CELL_SIZE);
+        return cellX << Integer.SIZE | (cellY & 0xFFFF_FFFFL);
+    }
+
+    /**
+     * Represents the contribution of an aircraft to its cell
+     *
+     * @param cellKey key of the cell of the aircraft
+     * @param x       coordinate of the aircraft at the zoom level of the clusters
+     * @param y       coordinate of the aircraft at the zoom level of the clusters
+     * @author Ünlüer Asli (329696)
+     * @author Berlin Nicolas (355535)
+     */
+    private record Member(long cellKey, double x, double y) {
+    }
+
+    private static final class Cell {
+        private int count;
+        private double sumX;
+        private double sumY;
+        private StackPane badge;
+        private Circle circle;
+        private Text text;
+    }
+}
@@ -5,34 +5,48 @@ import ch.epfl.javions.Preconditions;
 import ch.epfl.javions.Units;
 import ch.epfl.javions.adsb.CallSign;
 import ch.epfl.javions.aircraft.*;
+import javafx.application.Platform;
 import javafx.beans.InvalidationListener;
+import javafx.beans.binding.Binding;
 import javafx.beans.property.ObjectProperty;
+import javafx.beans.property.Property;
 import javafx.beans.property.ReadOnlyObjectProperty;
 import javafx.beans.property.SimpleObjectProperty;
 import javafx.collections.ObservableSet;
 import javafx.collections.SetChangeListener;
+import javafx.beans.value.ObservableValue;
 import javafx.scene.Group;
+import javafx.scene.Node;
+import javafx.scene.image.ImageView;
 import javafx.scene.layout.Pane;
 import javafx.scene.paint.Color;
-import javafx.scene.paint.LinearGradient;
-import javafx.scene.paint.Stop;
-import javafx.scene.shape.Line;
 import javafx.scene.shape.Rectangle;
-import javafx.scene.shape.SVGPath;
 import javafx.beans.binding.Bindings;
 import javafx.scene.text.Text;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
 
 import static ch.epfl.javions.WebMercator.x;
 import static ch.epfl.javions.WebMercator.y;
-import static javafx.scene.paint.CycleMethod.NO_CYCLE;
 
 
 /**
- * Manages the view of aircraft on the world map.
+ * Manages the view of aircraft on the world map. The node of every aircraft is kept in a map from its state,
+ * and the nodes of the aircraft removed during a frame are removed together from the pane on the next pulse,
+ * once the bindings and the listeners they registered on the properties of the states and of the map
+ * have been released. Only the aircraft in or near the visible part of the map, and the selected aircraft,
+ * have a node: the other aircraft only have a listener checking whether their new position brings them
+ * near the visible part of the map, which is checked again for all aircraft when the map moves.
+ * Optionally, below a given zoom level, the aircraft other than the selected one are not shown individually
+ * but grouped in clusters, shown as badges giving the number of aircraft of every cell of a grid of the map.
+ * The icons are image views showing sprites of an atlas of pre-rasterized icons, shared by all the aircraft.
  *
  * @author Ünlüer Asli (329696)
  * @author Berlin Nicolas (355535)
@@ -40,15 +54,36 @@ import static javafx.scene.paint.CycleMethod.NO_CYCLE;
 public final class AircraftController {
 
     private final MapParameters mapParameters;
+    private final ObservableSet<ObservableAircraftState> aircraftStateSet;
     private final ObjectProperty<ObservableAircraftState> selectedAircraftState;
     private final Pane pane = new Pane();
-    private final static int ZOOM_LEVEL = 11;
+    private final Map<ObservableAircraftState, AircraftNode> aircraftNodes = new IdentityHashMap<>();
+    private final Set<Node> pendingRemovals = new HashSet<>();
+    private final Map<ObservableAircraftState, InvalidationListener> positionListeners = new IdentityHashMap<>();
+    private final Runnable viewUpdater = this::updateView;
+    private final AircraftIconAtlas iconAtlas = new AircraftIconAtlas(ALTITUDE_COLOR_RAMP,
+            ICON_COLOR_BUCKETS, ICON_HEADING_STEP);
+    private final Group clusterGroup = new Group();
+    private final AircraftClusterView clusterView;
+    private final int clusteringZoom;
+    private boolean cullingNeeded;
+    private boolean clustering;
+    final static int ZOOM_LEVEL = 11;
     private final static int HIGHEST_ALTITUDE = 12000;
+    private final static int ALTITUDE_COLORS = 256;
+    final static ColorRamp ALTITUDE_COLOR_RAMP = ColorRamp.PLASMA.quantized(ALTITUDE_COLORS);
+    private final static double[] ALTITUDE_COLOR_THRESHOLDS = altitudeColorThresholds();
+
+    final static double VIEWPORT_MARGIN = 100;
+    private final static double CULLING_MARGIN = 2 * VIEWPORT_MARGIN;
+    final static int DEFAULT_CLUSTERING_ZOOM = MapParameters.MIN_VALUE_ZOOM;
+    final static int ICON_COLOR_BUCKETS = 32;
+    final static int ICON_HEADING_STEP = 5;
 
     private final static String EMPTY_STRING = "";
 
     /**
-     * Constructs a view of aircraft on world map
+     * Constructs a view of aircraft on world map, in which the aircraft are always shown individually
      *
      * @param mapParameters         parameters of the visible map
      * @param aircraftStateSet      set of the aircraft's states which should appear on the view
@@ -59,24 +94,80 @@ public final class AircraftController {
     public AircraftController(MapParameters mapParameters,
                               ObservableSet<ObservableAircraftState> aircraftStateSet,
                               ObjectProperty<ObservableAircraftState> selectedAircraftState) {
+        this(mapParameters, aircraftStateSet, selectedAircraftState, DEFAULT_CLUSTERING_ZOOM);
+    }
+
+    /**
+     * Constructs a view of aircraft on world map
+     *
+     * @param mapParameters         parameters of the visible map
+     * @param aircraftStateSet      set of the aircraft's states which should appear on the view
+     * @param selectedAircraftState contains the state of the selected aircraft, it can be null
+     *                              if no aircraft is selected
+     * @param clusteringZoom        zoom level below which the aircraft are grouped in clusters,
+     *                              the minimal zoom level of the map disabling the clusters
+     * @throws IllegalArgumentException when aircraft state's is an empty set, or if the zoom level
+     *                                  is not between the minimal and the maximal zoom levels of the map
+     */
+    public AircraftController(MapParameters mapParameters,
+                              ObservableSet<ObservableAircraftState> aircraftStateSet,
+                              ObjectProperty<ObservableAircraftState> selectedAircraftState,
+                              int clusteringZoom) {
 
         Preconditions.checkArgument(aircraftStateSet.isEmpty());
+        Preconditions.checkArgument(MapParameters.MIN_VALUE_ZOOM <= clusteringZoom
+                && clusteringZoom <= MapParameters.MAX_VALUE_ZOOM);
         this.mapParameters = mapParameters;
         this.selectedAircraftState = selectedAircraftState;
+        this.clusteringZoom = clusteringZoom;
+        this.clusterView = new AircraftClusterView(clusterGroup, mapParameters, clusteringZoom);
+        this.clustering = mapParameters.getZoom() < clusteringZoom;
         pane.getStylesheets().add("aircraft.css");
         pane.setPickOnBounds(false);
+        clusterGroup.layoutXProperty().bind(mapParameters.minXProperty().negate());
+        clusterGroup.layoutYProperty().bind(mapParameters.minYProperty().negate());
+        pane.getChildren().add(clusterGroup);
+        this.aircraftStateSet = aircraftStateSet;
         aircraftStateSet.addListener((SetChangeListener<ObservableAircraftState>) change -> {
             if (change.wasAdded()) {
                 ObservableAircraftState addedAircraft = change.getElementAdded();
-                Group aircraft = annotatedAircraft(addedAircraft);
-                pane.getChildren().add(aircraft);
+                InvalidationListener positionListener = observable -> positionChanged(addedAircraft);
+                positionListeners.put(addedAircraft, positionListener);
+                addedAircraft.positionProperty().addListener(positionListener);
+                positionChanged(addedAircraft);
             }
             if (change.wasRemoved()) {
                 ObservableAircraftState removedAircraft = change.getElementRemoved();
-                pane.getChildren().removeIf(child -> idAircraft(removedAircraft).equals(child.getId()));
+                removedAircraft.positionProperty().removeListener(positionListeners.remove(removedAircraft));
+                removeNode(removedAircraft);
+                if (clustering) {
+                    clusterView.remove(removedAircraft);
+                    Platform.requestNextPulse();
+                }
             }
         });
 
+        InvalidationListener viewportListener = observable -> {
+            cullingNeeded = true;
+            Platform.requestNextPulse();
+        };
+        mapParameters.minXProperty().addListener(viewportListener);
+        mapParameters.minYProperty().addListener(viewportListener);
+        mapParameters.zoomProperty().addListener(viewportListener);
+        pane.widthProperty().addListener(viewportListener);
+        pane.heightProperty().addListener(viewportListener);
+        selectedAircraftState.addListener(viewportListener);
+        selectedAircraftState.addListener((p, oldState, newState) -> {
+            if (!clustering) return;
+            if (oldState != null && aircraftStateSet.contains(oldState)) clusterView.update(oldState);
+            if (newState != null) clusterView.remove(newState);
+            Platform.requestNextPulse();
+        });
+        pane.sceneProperty().addListener((p, oldScene, newScene) -> {
+            if (oldScene != null) oldScene.removePreLayoutPulseListener(viewUpdater);
+            if (newScene != null) newScene.addPreLayoutPulseListener(viewUpdater);
+        });
+
     }
 
     /**
@@ -88,135 +179,167 @@ public final class AircraftController {
         return pane;
     }
 
-    private Group annotatedAircraft(ObservableAircraftState aircraftState) {
+    /**
+     * Returns true if and only if a position is in the visible part of the map or near it
+     *
+     * @param position      of an aircraft, possibly null
+     * @param mapParameters parameters of the visible map
+     * @param width         of the visible part of the map, in pixels
+     * @param height        of the visible part of the map, in pixels
+     * @param margin        around the visible part of the map, in pixels
+     * @return true if the position is known and at most at the margin from the visible part of the map
+     */
+    static boolean isNearViewport(GeoPos position, MapParameters mapParameters,
+                                  double width, double height, double margin) {
+        if (position == null) return false;
+        double x = x(mapParameters.getZoom(), position.longitude()) - mapParameters.getMinX();
+        double y = y(mapParameters.getZoom(), position.latitude()) - mapParameters.getMinY();
+        return -margin <= x && x <= width + margin && -margin <= y && y <= height + margin;
+    }
+
+    private void updateView() {
+        if (cullingNeeded) {
+            cullingNeeded = false;
+            boolean zoomedOut = mapParameters.getZoom() < clusteringZoom;
+            if (zoomedOut && (!clustering || clusterView.zoom() != mapParameters.getZoom())) {
+                clusterView.rebuild(aircraftStateSet);
+                if (selectedAircraftState.get() != null) clusterView.remove(selectedAircraftState.get());
+            } else if (!zoomedOut && clustering) {
+                clusterView.clear();
+            }
+            clustering = zoomedOut;
+            for (ObservableAircraftState aircraftState : aircraftStateSet) updateNode(aircraftState);
+        }
+        if (clustering) clusterView.updateBadges();
+        applyRemovals();
+    }
+
+    private void positionChanged(ObservableAircraftState aircraftState) {
+        if (clustering && !aircraftState.equals(selectedAircraftState.get())) {
+            clusterView.update(aircraftState);
+            Platform.requestNextPulse();
+        }
+        updateNode(aircraftState);
+    }
+
+    private void updateNode(ObservableAircraftState aircraftState) {
+        boolean shown = aircraftNodes.containsKey(aircraftState);
+        boolean needed = aircraftState.equals(selectedAircraftState.get())
+                || !clustering && isNearViewport(aircraftState.getPosition(), mapParameters,
+                pane.getWidth(), pane.getHeight(), shown ? CULLING_MARGIN : VIEWPORT_MARGIN);
+        if (needed && !shown) {
+            List<Runnable> releases = new ArrayList<>();
+            Group aircraft = annotatedAircraft(aircraftState, releases);
+            aircraftNodes.put(aircraftState, new AircraftNode(aircraft, releases));
+            pane.getChildren().add(aircraft);
+        } else if (!needed && shown) {
+            removeNode(aircraftState);
+        }
+    }
+
+    private void removeNode(ObservableAircraftState aircraftState) {
+        AircraftNode removedNode = aircraftNodes.remove(aircraftState);
+        if (removedNode != null) {
+            removedNode.releases().forEach(Runnable::run);
+            pendingRemovals.add(removedNode.group());
+            Platform.requestNextPulse();
+        }
+    }
+
+    private void applyRemovals() {
+        if (pendingRemovals.isEmpty()) return;
+        List<Node> children = pane.getChildren();
+        // rebuilding the children is cheaper than removing most of them one range at a time
+        if (2 * pendingRemovals.size() > children.size()) {
+            List<Node> keptChildren = new ArrayList<>(children.size() - pendingRemovals.size());
+            for (Node child : children) {
+                if (!pendingRemovals.contains(child)) keptChildren.add(child);
+            }
+            pane.getChildren().setAll(keptChildren);
+        } else {
+            children.removeAll(pendingRemovals);
+        }
+        pendingRemovals.clear();
+    }
+
+    /**
+     * Binds a property of a node of an aircraft, and records how to release the binding
+     *
+     * @param property of the node
+     * @param value    to which the property is bound
+     * @param releases actions releasing the bindings and the listeners of the aircraft
+     */
+    private static <T> void bind(Property<T> property, ObservableValue<? extends T> value, List<Runnable> releases) {
+        property.bind(value);
+        releases.add(() -> {
+            property.unbind();
+            if (value instanceof Binding<?> binding) binding.dispose();
+        });
+    }
+
+    private Group annotatedAircraft(ObservableAircraftState aircraftState, List<Runnable> releases) {
         Group aircraftGroup = new Group();
         String icaoAddress = String.valueOf(aircraftState.getIcaoAddress());
         aircraftGroup.setId(icaoAddress);
-        Group trajectoryGroup = trajectory(aircraftState);
-        Group labelAndIcon = labelAndIconGroup(aircraftState);
+        Group trajectoryGroup = trajectory(aircraftState, releases);
+        Group labelAndIcon = labelAndIconGroup(aircraftState, releases);
         aircraftGroup.getChildren().addAll(trajectoryGroup, labelAndIcon);
-        aircraftGroup.viewOrderProperty().bind(aircraftState.altitudeProperty().negate());
+        bind(aircraftGroup.viewOrderProperty(), aircraftState.altitudeProperty().negate(), releases);
         return aircraftGroup;
     }
 
-    private Group trajectory(ObservableAircraftState aircraftState) {
+    private Group trajectory(ObservableAircraftState aircraftState, List<Runnable> releases) {
         Group groupTrajectory = new Group();
         groupTrajectory.getStyleClass().add("trajectory");
-        InvalidationListener trajectoryListener = change -> {
-            if (aircraftState.equals(selectedAircraftState.getValue()))
-                drawTrajectory(groupTrajectory, aircraftState);
-        };
-
-        InvalidationListener zoomListener = change -> drawTrajectory(groupTrajectory, aircraftState);
+        TrajectoryView trajectoryView = new TrajectoryView(groupTrajectory, aircraftState, mapParameters);
         groupTrajectory.visibleProperty().addListener((observableValue, oldValue, newValue) -> {
-            if (newValue) {
-                drawTrajectory(groupTrajectory, aircraftState);
-                aircraftState.getTrajectory().addListener(trajectoryListener);
-                mapParameters.zoomProperty().addListener(zoomListener);
-
-            } else {
-                aircraftState.getTrajectory().removeListener(trajectoryListener);
-                mapParameters.zoomProperty().removeListener(zoomListener);
-                groupTrajectory.getChildren().clear();
-            }
+            if (newValue) trajectoryView.show();
+            else trajectoryView.hide();
         });
 
-
-        groupTrajectory.layoutXProperty().bind(Bindings.createDoubleBinding(() ->
+        bind(groupTrajectory.layoutXProperty(), Bindings.createDoubleBinding(() ->
                 -mapParameters.getMinX(), mapParameters.minXProperty()
-        ));
-        groupTrajectory.layoutYProperty().bind(Bindings.createDoubleBinding(() ->
+        ), releases);
+        bind(groupTrajectory.layoutYProperty(), Bindings.createDoubleBinding(() ->
                 -mapParameters.getMinY(), mapParameters.minYProperty()
-        ));
+        ), releases);
 
-        groupTrajectory.visibleProperty().bind(Bindings.createBooleanBinding(() ->
-                aircraftState.equals(selectedAircraftState.get()), selectedAircraftState));
+        bind(groupTrajectory.visibleProperty(), Bindings.createBooleanBinding(() ->
+                aircraftState.equals(selectedAircraftState.get()), selectedAircraftState), releases);
+        releases.add(trajectoryView::dispose);
         return groupTrajectory;
 
     }
 
-    private void drawTrajectory(Group groupTrajectory, ObservableAircraftState aircraftState) {
-
-        List<ObservableAircraftState.AirbornePos> airbornePos = aircraftState.getTrajectory();
-
-        List<Line> lines = new ArrayList<>();
-        groupTrajectory.getChildren().clear();
-
-        List<ObservableAircraftState.AirbornePos> airbornePositionList = airbornePos.subList(1, airbornePos.size());
-        ObservableAircraftState.AirbornePos firstElement = airbornePos.get(0);
-
-        for (ObservableAircraftState.AirbornePos position : airbornePositionList) {
-
-            int zoom = mapParameters.getZoom();
-
-            GeoPos firstPosition = firstElement.position();
-            double startX = x(zoom, firstPosition.longitude());
-            double startY = y(zoom, firstPosition.latitude());
-
-            GeoPos nextPosition = position.position();
-            double endX = x(zoom, nextPosition.longitude());
-            double endY = y(zoom, nextPosition.latitude());
-
-            Line line = new Line(startX, startY, endX, endY);
-
-            colorTrajectory(firstElement, position, line);
-
-            lines.add(line);
-
-            firstElement = position;
-        }
-        groupTrajectory.getChildren().addAll(lines);
-    }
-
-
-    private Group labelAndIconGroup(ObservableAircraftState aircraftState) {
+    private Group labelAndIconGroup(ObservableAircraftState aircraftState, List<Runnable> releases) {
         Group labelAndIconGroup = new Group();
-        labelAndIconGroup.getChildren().addAll(label(aircraftState), icon(aircraftState));
+        labelAndIconGroup.getChildren().addAll(label(aircraftState, releases), icon(aircraftState, releases));
 
-        labelAndIconGroup.layoutXProperty().bind(Bindings.createDoubleBinding(() -> {
+        bind(labelAndIconGroup.layoutXProperty(), Bindings.createDoubleBinding(() -> {
             double longitude = aircraftState.getPosition().longitude();
             double longitudeInPixel = x(mapParameters.getZoom(), longitude);
             return longitudeInPixel - mapParameters.getMinX();
-        }, mapParameters.minXProperty(), mapParameters.zoomProperty(), aircraftState.positionProperty()));
+        }, mapParameters.minXProperty(), mapParameters.zoomProperty(), aircraftState.positionProperty()), releases);
 
-        labelAndIconGroup.layoutYProperty().bind(Bindings.createDoubleBinding(() -> {
+        bind(labelAndIconGroup.layoutYProperty(), Bindings.createDoubleBinding(() -> {
                     double latitude = aircraftState.getPosition().latitude();
                     double latitudeInPixel = y(mapParameters.getZoom(), latitude);
                     return latitudeInPixel - mapParameters.getMinY();
 
                 },
-                mapParameters.zoomProperty(), mapParameters.minYProperty(), aircraftState.positionProperty()));
+                mapParameters.zoomProperty(), mapParameters.minYProperty(), aircraftState.positionProperty()),
+                releases);
         return labelAndIconGroup;
     }
 
-    private Group label(ObservableAircraftState aircraftState) {
+    private Group label(ObservableAircraftState aircraftState, List<Runnable> releases) {
         Group labelGroup = new Group();
         labelGroup.getStyleClass().add("label");
         Text text = new Text();
 
-        text.textProperty().bind(Bindings.createStringBinding(() -> {
-
-            String textLabel = "\n" + verificationOfVelocity(aircraftState) + "\u2002"
-                    + String.format("%.0f m", aircraftState.getAltitude());
-            AircraftData data = aircraftState.getAircraftData();
-            if (data != null) {
-
-                AircraftRegistration registration = data.registration();
-                if (registration != null) {
-                    return registration.string() + textLabel;
-                }
-
-                ReadOnlyObjectProperty<CallSign> callSignProperty = aircraftState.callSignProperty();
-                CallSign callSign = aircraftState.getCallSign();
-                if (callSignProperty != null) {
-                    return callSign + textLabel;
-                }
-
-                IcaoAddress icaoAddress = aircraftState.getIcaoAddress();
-                return icaoAddress.string() + textLabel;
-            }
-            return "" + textLabel;
-        }, aircraftState.altitudeProperty(), aircraftState.velocityProperty(), aircraftState.callSignProperty()));
+        bind(text.textProperty(), Bindings.createStringBinding(() -> labelText(aircraftState),
+                aircraftState.altitudeProperty(), aircraftState.velocityProperty(), aircraftState.callSignProperty()),
+                releases);
 
 
         Rectangle rectangleLabel = new Rectangle();
@@ -225,67 +348,123 @@ public final class AircraftController {
         rectangleLabel.heightProperty().bind(
                 text.layoutBoundsProperty().map(labelHeight -> labelHeight.getHeight() + 4));
 
-        labelGroup.visibleProperty().bind(Bindings.createBooleanBinding(() ->
+        bind(labelGroup.visibleProperty(), Bindings.createBooleanBinding(() ->
                         mapParameters.getZoom() >= ZOOM_LEVEL || aircraftState.equals(selectedAircraftState.get()),
-                mapParameters.zoomProperty(), selectedAircraftState));
+                mapParameters.zoomProperty(), selectedAircraftState), releases);
 
         labelGroup.getChildren().addAll(rectangleLabel, text);
 
         return labelGroup;
     }
 
-    private SVGPath icon(ObservableAircraftState aircraftState) {
-        SVGPath path = new SVGPath();
+    private ImageView icon(ObservableAircraftState aircraftState, List<Runnable> releases) {
+        ImageView imageView = new ImageView();
+        double spriteOffset = -AircraftIconAtlas.spriteSize() / 2d;
+        imageView.setX(spriteOffset);
+        imageView.setY(spriteOffset);
 
         AircraftData data = aircraftState.getAircraftData();
-        AircraftTypeDesignator typeDesignator;
-        AircraftDescription description;
-        WakeTurbulenceCategory wakeTurbulenceCategory;
-        if (Objects.isNull(data)) {
-            typeDesignator = new AircraftTypeDesignator(EMPTY_STRING);
-            description = new AircraftDescription(EMPTY_STRING);
-            wakeTurbulenceCategory = WakeTurbulenceCategory.UNKNOWN;
+        ObjectProperty<Integer> spriteProperty = new SimpleObjectProperty<>();
+        bind(spriteProperty, Bindings.createObjectBinding(() -> iconAtlas.sprite(
+                        iconFor(data, aircraftState.getCategory()),
+                        altitudeColorIndex(aircraftState.getAltitude()),
+                        Units.convertTo(aircraftState.getTrackOrHeading(), Units.Angle.DEGREE)),
+                aircraftState.categoryProperty(), aircraftState.altitudeProperty(),
+                aircraftState.trackOrHeadingProperty()), releases);
 
-        } else {
-            typeDesignator = data.typeDesignator();
-            description = data.description();
-            wakeTurbulenceCategory = data.wakeTurbulenceCategory();
-        }
+        imageView.imageProperty().bind(spriteProperty.map(iconAtlas::page));
+        imageView.viewportProperty().bind(spriteProperty.map(iconAtlas::viewport));
+
+        imageView.getStyleClass().add("aircraft");
+
+        imageView.setOnMouseClicked(event ->
+                selectedAircraftState.set(aircraftState)
+        );
+        return imageView;
+    }
 
-        ObjectProperty<AircraftIcon> iconObjectProperty = new SimpleObjectProperty<>();
-        iconObjectProperty.bind(aircraftState.categoryProperty().map(category ->
-                AircraftIcon.iconFor(typeDesignator, description, category.intValue(), wakeTurbulenceCategory)));
+    /**
+     * Returns the text of the label of an aircraft, made of its identification on the first line,
+     * and of its velocity and its altitude on the second line
+     *
+     * @param aircraftState state of the aircraft
+     * @return the text of the label of the aircraft
+     */
+    static String labelText(ObservableAircraftState aircraftState) {
+        String textLabel = "\n" + verificationOfVelocity(aircraftState) + "\u2002"
+                + String.format("%.0f m", aircraftState.getAltitude());
+        AircraftData data = aircraftState.getAircraftData();
+        if (data != null) {
 
-        path.contentProperty().bind(iconObjectProperty.map(AircraftIcon::svgPath));
+            AircraftRegistration registration = data.registration();
+            if (registration != null) {
+                return registration.string() + textLabel;
+            }
 
-        path.rotateProperty().bind(Bindings.createDoubleBinding(() -> {
-            AircraftIcon iconProperty = iconObjectProperty.get();
-            if (iconProperty.canRotate()) {
-                double trackOrHeading = aircraftState.getTrackOrHeading();
-                return Units.convertTo(trackOrHeading, Units.Angle.DEGREE);
-            } else
-                return 0d;
-        }, iconObjectProperty, aircraftState.trackOrHeadingProperty()));
+            ReadOnlyObjectProperty<CallSign> callSignProperty = aircraftState.callSignProperty();
+            CallSign callSign = aircraftState.getCallSign();
+            if (callSignProperty != null) {
+                return callSign + textLabel;
+            }
 
+            IcaoAddress icaoAddress = aircraftState.getIcaoAddress();
+            return icaoAddress.string() + textLabel;
+        }
+        return "" + textLabel;
+    }
 
-        path.getStyleClass().add("aircraft");
-        path.visibleProperty().set(true);
+    /**
+     * Returns the icon of an aircraft
+     *
+     * @param aircraftData data of the aircraft, it can be null
+     * @param category     category of the aircraft
+     * @return the icon of the aircraft
+     */
+    static AircraftIcon iconFor(AircraftData aircraftData, int category) {
+        if (Objects.isNull(aircraftData)) {
+            return AircraftIcon.iconFor(new AircraftTypeDesignator(EMPTY_STRING),
+                    new AircraftDescription(EMPTY_STRING), category, WakeTurbulenceCategory.UNKNOWN);
+        }
+        return AircraftIcon.iconFor(aircraftData.typeDesignator(), aircraftData.description(),
+                category, aircraftData.wakeTurbulenceCategory());
+    }
 
-        path.fillProperty().bind(aircraftState.altitudeProperty().map(altitude ->
-                getColorForCalculatedAltitude(altitude.doubleValue())));
+    /**
+     * Returns the color of an aircraft, or of its trajectory, at the given altitude, taken from the
+     * precomputed colors of the altitude color ramp
+     *
+     * @param altitude in meters
+     * @return the color at this altitude
+     */
+    static Color getColorForCalculatedAltitude(double altitude) {
+        return ALTITUDE_COLOR_RAMP.atIndex(altitudeColorIndex(altitude));
+    }
 
-        path.setOnMouseClicked(event ->
-                selectedAircraftState.set(aircraftState)
-        );
-        return path;
+    /**
+     * Returns the index of the color of an aircraft at the given altitude in the lookup table of the altitude
+     * color ramp, whose position in the ramp is the cube root of the altitude divided by 12000 m. The index is
+     * found by a binary search in the precomputed altitudes at which the color changes, without computing
+     * the cube root.
+     *
+     * @param altitude in meters
+     * @return the index of the color in the lookup table, 0 if the altitude is NaN
+     */
+    static int altitudeColorIndex(double altitude) {
+        if (Double.isNaN(altitude)) return 0;
+        int index = Arrays.binarySearch(ALTITUDE_COLOR_THRESHOLDS, altitude);
+        return index >= 0 ? index + 1 : -index - 1;
     }
 
-    private String idAircraft(ObservableAircraftState aircraftState) {
-        IcaoAddress icaoAddress = aircraftState.getIcaoAddress();
-        return String.valueOf(icaoAddress);
+    private static double[] altitudeColorThresholds() {
+        double[] thresholds = new double[ALTITUDE_COLORS - 1];
+        for (int i = 0; i < thresholds.length; i++) {
+            double colorValue = (i + 0.5) / (ALTITUDE_COLORS - 1);
+            thresholds[i] = HIGHEST_ALTITUDE * colorValue * colorValue * colorValue;
+        }
+        return thresholds;
     }
 
-    private String verificationOfVelocity(ObservableAircraftState aircraftState) {
+    private static String verificationOfVelocity(ObservableAircraftState aircraftState) {
         double velocity = aircraftState.getVelocity();
         if (Double.isNaN(velocity)) {
             return "? km/h";
@@ -293,28 +472,14 @@ public final class AircraftController {
         return String.format("%.0f km/h", Units.convertTo(velocity, Units.Speed.KILOMETER_PER_HOUR));
     }
 
-    private void colorTrajectory(ObservableAircraftState.AirbornePos position,
-                                 ObservableAircraftState.AirbornePos nextPosition, Line line) {
-
-        double currentAltitude = position.altitude();
-        double nextAltitude = nextPosition.altitude();
-        Color firstColor = getColorForCalculatedAltitude(currentAltitude);
-        if (currentAltitude == nextAltitude) {
-            Color colorValue = getColorForCalculatedAltitude(nextAltitude);
-            line.setStroke(colorValue);
-        } else {
-            Color secondColor = getColorForCalculatedAltitude(nextAltitude);
-            Stop s1 = new Stop(0, firstColor);
-            Stop s2 = new Stop(1, secondColor);
-            LinearGradient lineGradient = new LinearGradient(0, 0, 1, 0,
-                    true, NO_CYCLE, s1, s2);
-            line.setStroke(lineGradient);
-        }
-    }
-
-    private Color getColorForCalculatedAltitude(double altitude) {
-        double calculatedAltitude = Math.cbrt(altitude / HIGHEST_ALTITUDE);
-        return ColorRamp.PLASMA.at(calculatedAltitude);
+    /**
+     * Represents the node of an aircraft
+     *
+     * @param group    node of the aircraft, made of its trajectory, its label and its icon
+     * @param releases actions releasing the bindings and the listeners registered for the aircraft
+     * @author Ünlüer Asli (329696)
+     * @author Berlin Nicolas (355535)
+     */
+    private record AircraftNode(Group group, List<Runnable> releases) {
     }
-
 }
@@ -0,0 +1,189 @@
+package ch.epfl.javions.gui;
+
+import ch.epfl.javions.Preconditions;
+import javafx.geometry.Rectangle2D;
+import javafx.scene.SnapshotParameters;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.image.Image;
+import javafx.scene.image.WritableImage;
+import javafx.scene.paint.Color;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Represents an atlas of pre-rasterized aircraft icons. Every icon is rasterized once per color of the
+ * altitude color ramp, quantized in buckets, and per heading, quantized in steps of 5 degrees, into large
+ * pages of sprites, so that drawing an aircraft only copies a part of a page, either on a canvas or by an
+ * image view showing the viewport of its sprite. The sprites are rasterized the first time they are requested,
+ * and must therefore be requested on the JavaFX thread.
+ *
+ * @author Ünlüer Asli (329696)
+ * @author Berlin Nicolas (355535)
+ */
+public final class AircraftIconAtlas {
+    private static final int SPRITE_SIZE = 48;
+    private static final int PAGE_SIZE = 2048;
+    private static final int SPRITES_PER_LINE = PAGE_SIZE / SPRITE_SIZE;
+    private static final int SPRITES_PER_PAGE = SPRITES_PER_LINE * SPRITES_PER_LINE;
+    private static final double STROKE_WIDTH = 1;
+    private static final int NO_SPRITE = -1;
+    private final ColorRamp colorRamp;
+    private final int colorBuckets;
+    private final double headingStep;
+    private final int headings;
+    private final int[] sprites;
+    private final List<WritableImage> pages = new ArrayList<>();
+    private final List<Rectangle2D> viewports = new ArrayList<>();
+    private final Canvas rasterCanvas = new Canvas(SPRITE_SIZE, SPRITE_SIZE);
+    private final SnapshotParameters snapshotParameters = new SnapshotParameters();
+    private int spriteCount;
+    private long buildTimeNs;
+
+    /**
+     * Constructs an empty atlas
+     *
+     * @param colorRamp    quantized ramp of the colors of the icons
+     * @param colorBuckets number of colors of the ramp used for the icons
+     * @param headingStep  step between two rasterized headings, in degrees
+     * @throws IllegalArgumentException if the ramp is not quantized, if there are less than two colors
+     *                                  or if the step does not divide 360
+     */
+    AircraftIconAtlas(ColorRamp colorRamp, int colorBuckets, int headingStep) {
+        Preconditions.checkArgument(colorRamp.lookupTableSize() >= 2
+                && colorBuckets >= 2 && headingStep > 0 && 360 % headingStep == 0);
+        this.colorRamp = colorRamp;
+        this.colorBuckets = colorBuckets;
+        this.headingStep = headingStep;
+        this.headings = 360 / headingStep;
+        this.sprites = new int[AircraftIcon.values().length * colorBuckets * headings];
+        Arrays.fill(sprites, NO_SPRITE);
+        snapshotParameters.setFill(Color.TRANSPARENT);
+    }
+
+    /**
+     * Draws an icon centered on the given point
+     *
+     * @param graphicsContext on which the icon is drawn
+     * @param icon            to draw
+     * @param colorIndex      index of the color of the icon in the lookup table of the color ramp
+     * @param heading         of the icon in degrees, ignored if the icon can not rotate
+     * @param x               coordinate of the center of the icon
+     * @param y               coordinate of the center of the icon
+     */
+    void draw(GraphicsContext graphicsContext, AircraftIcon icon, int colorIndex, double heading,
+              double x, double y) {
+        int sprite = sprite(icon, colorIndex, heading);
+        int positionInPage = sprite % SPRITES_PER_PAGE;
+        graphicsContext.drawImage(pages.get(sprite / SPRITES_PER_PAGE),
+                (positionInPage % SPRITES_PER_LINE) * SPRITE_SIZE, (positionInPage / SPRITES_PER_LINE) * SPRITE_SIZE,
+                SPRITE_SIZE, SPRITE_SIZE,
+                x - SPRITE_SIZE / 2d, y - SPRITE_SIZE / 2d, SPRITE_SIZE, SPRITE_SIZE);
+    }
+
+    /**
+     * Returns the sprite of an icon, rasterizing it if it is requested for the first time
+     *
+     * @param icon       of the sprite
+     * @param colorIndex index of the color of the icon in the lookup table of the color ramp
+     * @param heading    of the icon in degrees, ignored if the icon can not rotate
+     * @return the number of the sprite, to be given to page and viewport
+     */
+    int sprite(AircraftIcon icon, int colorIndex, double heading) {
+        int lastIndex = colorRamp.lookupTableSize() - 1;
+        int bucket = (colorIndex * (colorBuckets - 1) + lastIndex / 2) / lastIndex;
+        int headingIndex = icon.canRotate() && !Double.isNaN(heading)
+                ? Math.floorMod((int) Math.round(heading / headingStep), headings)
+                : 0;
+        int index = (icon.ordinal() * colorBuckets + bucket) * headings + headingIndex;
+        if (sprites[index] == NO_SPRITE) sprites[index] = rasterize(icon, bucket, headingIndex);
+        return sprites[index];
+    }
+
+    /**
+     * Returns the page containing a sprite
+     *
+     * @param sprite number of the sprite, returned by sprite
+     * @return the page containing the sprite
+     */
+    Image page(int sprite) {
+        return pages.get(sprite / SPRITES_PER_PAGE);
+    }
+
+    /**
+     * Returns the part of its page occupied by a sprite
+     *
+     * @param sprite number of the sprite, returned by sprite
+     * @return the viewport of the sprite in its page
+     */
+    Rectangle2D viewport(int sprite) {
+        return viewports.get(sprite);
+    }
+
+    /**
+     * Returns the width and the height of the sprites, whose icons are centered
+     *
+     * @return the size of the sprites, in pixels
+     */
+    static int spriteSize() {
+        return SPRITE_SIZE;
+    }
+
+    /**
+     * Returns the number of rasterized sprites
+     *
+     * @return the number of rasterized sprites
+     */
+    public int sprites() {
+        return spriteCount;
+    }
+
+    /**
+     * Returns the number of bytes of the pages of the atlas
+     *
+     * @return the number of bytes of the pages of the atlas
+     */
+    public long bytes() {
+        return (long) pages.size() * PAGE_SIZE * PAGE_SIZE * Integer.BYTES;
+    }
+
+    /**
+     * Returns the total time spent rasterizing the sprites
+     *
+     * @return the total time spent rasterizing the sprites, in nanoseconds
+     */
+    public long buildTimeNs() {
+        return buildTimeNs;
+    }
+
+    private int rasterize(AircraftIcon icon, int bucket, int headingIndex) {
+        long startTime = System.nanoTime();
+        GraphicsContext graphicsContext = rasterCanvas.getGraphicsContext2D();
+        graphicsContext.clearRect(0, 0, SPRITE_SIZE, SPRITE_SIZE);
+        graphicsContext.save();
+        graphicsContext.translate(SPRITE_SIZE / 2d, SPRITE_SIZE / 2d);
+        graphicsContext.rotate(headingIndex * headingStep);
+        graphicsContext.beginPath();
+        graphicsContext.appendSVGPath(icon.svgPath());
+        graphicsContext.setFill(colorRamp.at((double) bucket / (colorBuckets - 1)));
+        graphicsContext.fill();
+        graphicsContext.setStroke(Color.BLACK);
+        graphicsContext.setLineWidth(STROKE_WIDTH);
+        graphicsContext.stroke();
+        graphicsContext.restore();
+        Image image = rasterCanvas.snapshot(snapshotParameters, null);
+
+        int sprite = spriteCount++;
+        if (sprite / SPRITES_PER_PAGE == pages.size()) pages.add(new WritableImage(PAGE_SIZE, PAGE_SIZE));
+        int positionInPage = sprite % SPRITES_PER_PAGE;
+        int spriteX = (positionInPage % SPRITES_PER_LINE) * SPRITE_SIZE;
+        int spriteY = (positionInPage / SPRITES_PER_LINE) * SPRITE_SIZE;
+        pages.get(sprite / SPRITES_PER_PAGE).getPixelWriter().setPixels(
+                spriteX, spriteY, SPRITE_SIZE, SPRITE_SIZE, image.getPixelReader(), 0, 0);
+        viewports.add(new Rectangle2D(spriteX, spriteY, SPRITE_SIZE, SPRITE_SIZE));
+        buildTimeNs += System.nanoTime() - startTime;
+        return sprite;
+    }
+}
@@ -3,7 +3,7 @@ package ch.epfl.javions.gui;
 import ch.epfl.javions.adsb.AircraftStateAccumulator;
 import ch.epfl.javions.adsb.Message;
 import ch.epfl.javions.aircraft.AircraftData;
-import ch.epfl.javions.aircraft.AircraftDatabase;
+import ch.epfl.javions.aircraft.AircraftDataSource;
 import ch.epfl.javions.aircraft.IcaoAddress;
 import javafx.collections.ObservableSet;
 
@@ -26,7 +26,7 @@ public final class AircraftStateManager {
     private final Map<IcaoAddress, AircraftStateAccumulator<ObservableAircraftState>> table;
     private final ObservableSet<ObservableAircraftState> states;
     private final ObservableSet<ObservableAircraftState> unmodifiableStates;
-    private final AircraftDatabase database;
+    private final AircraftDataSource database;
     private long lastTimeStampNs;
 
     /**
@@ -41,10 +41,10 @@ public final class AircraftStateManager {
     /**
      * Constructs an aircraftStateManager with a database
      *
-     * @param database of the aircraft
+     * @param database of the aircraft, for instance an AircraftDatabase or an IndexedAircraftDatabase
      * @throws NullPointerException if database is null
      */
-    public AircraftStateManager(AircraftDatabase database) {
+    public AircraftStateManager(AircraftDataSource database) {
         this.database = Objects.requireNonNull(database);
         this.table = new HashMap<>();
         states = observableSet();
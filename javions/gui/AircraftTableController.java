@@ -4,6 +4,7 @@ import ch.epfl.javions.Units;
 import ch.epfl.javions.adsb.CallSign;
 import ch.epfl.javions.aircraft.AircraftData;
 import ch.epfl.javions.aircraft.IcaoAddress;
+import javafx.application.Platform;
 import javafx.beans.binding.Bindings;
 import javafx.beans.binding.DoubleExpression;
 import javafx.beans.property.ObjectProperty;
@@ -11,20 +12,26 @@ import javafx.beans.property.ReadOnlyObjectWrapper;
 import javafx.beans.value.ObservableValue;
 import javafx.collections.ObservableSet;
 import javafx.collections.SetChangeListener;
+import javafx.scene.control.TableCell;
 import javafx.scene.control.TableColumn;
 import javafx.scene.control.TableView;
 import javafx.scene.input.MouseButton;
 
 import java.text.NumberFormat;
-import java.text.ParseException;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Objects;
+import java.util.Set;
 import java.util.function.Consumer;
 import java.util.function.Function;
 
 import static javafx.scene.control.TableView.CONSTRAINED_RESIZE_POLICY_ALL_COLUMNS;
 
 /**
- * Manages the aircraft states that has to be shown on the table
+ * Manages the aircraft states that has to be shown on the table. The numeric columns hold the raw values,
+ * formatted only when displayed, and the insertions and removals of aircraft are applied together on the
+ * next pulse, followed by at most one sort per frame.
  *
  * @author Ünlüer Asli (329696)
  * @author Berlin Nicolas (355535)
@@ -42,6 +49,9 @@ public final class AircraftTableController {
     private final ObservableSet<ObservableAircraftState> observableAircraftStates;
     private final ObjectProperty<ObservableAircraftState> aircraftStateProperty;
     private final TableView<ObservableAircraftState> tableView;
+    private final Set<ObservableAircraftState> pendingAdditions = new LinkedHashSet<>();
+    private final Set<ObservableAircraftState> pendingRemovals = new HashSet<>();
+    private final Runnable itemsUpdater = this::updateItems;
     private Consumer<ObservableAircraftState> consumer;
 
 
@@ -134,10 +144,10 @@ public final class AircraftTableController {
                         Units.Speed.KILOMETER_PER_HOUR, 0, 0));
     }
 
-    private TableColumn<ObservableAircraftState, String> createNumericColumn(
+    private TableColumn<ObservableAircraftState, Number> createNumericColumn(
             String title, Function<ObservableAircraftState, DoubleExpression> function,
             double unit, int maxDigits, int minDigits) {
-        TableColumn<ObservableAircraftState, String> column = new TableColumn<>(title);
+        TableColumn<ObservableAircraftState, Number> column = new TableColumn<>(title);
         column.getStyleClass().add("numeric");
         column.setPrefWidth(NUMERIC_COLUMN_SIZE);
 
@@ -145,22 +155,35 @@ public final class AircraftTableController {
         numberFormat.setMaximumFractionDigits(maxDigits);
         numberFormat.setMinimumFractionDigits(minDigits);
 
-        column.setCellValueFactory(e ->
-                function.apply(e.getValue()).map(c ->
-                        Double.isNaN(c.doubleValue()) ? "" : numberFormat.format(Units.convertTo(c.doubleValue(), unit))));
-        column.setComparator((x, y) -> {
-            if (x.isEmpty() || y.isEmpty()) return x.compareTo(y);
-            try {
-                double num1 = numberFormat.parse(x).doubleValue();
-                double num2 = numberFormat.parse(y).doubleValue();
-                return Double.compare(num1, num2);
-            } catch (ParseException e) {
-                throw new RuntimeException(e);
+        column.setCellValueFactory(e -> function.apply(e.getValue()));
+        column.setCellFactory(c -> new TableCell<>() {
+            @Override
+            protected void updateItem(Number value, boolean empty) {
+                super.updateItem(value, empty);
+                setText(empty || value == null || Double.isNaN(value.doubleValue())
+                        ? null
+                        : numberFormat.format(Units.convertTo(value.doubleValue(), unit)));
             }
         });
+        column.setComparator((x, y) -> compareNumeric(x.doubleValue(), y.doubleValue()));
         return column;
     }
 
+    /**
+     * Compares two values of a numeric column, the unknown values coming first
+     *
+     * @param x first value, NaN if unknown
+     * @param y second value, NaN if unknown
+     * @return a negative integer, zero or a positive integer if the first value is smaller than, equal to
+     * or greater than the second one
+     */
+    static int compareNumeric(double x, double y) {
+        boolean xUnknown = Double.isNaN(x);
+        boolean yUnknown = Double.isNaN(y);
+        if (xUnknown || yUnknown) return Boolean.compare(!xUnknown, !yUnknown);
+        return Double.compare(x, y);
+    }
+
     private TableColumn<ObservableAircraftState, String> createTextualColumn(
             String title, Function<ObservableAircraftState, ObservableValue<String>> function, int width) {
         TableColumn<ObservableAircraftState, String> column = new TableColumn<>(title);
@@ -181,14 +204,22 @@ public final class AircraftTableController {
         observableAircraftStates.addListener((SetChangeListener<ObservableAircraftState>)
                 change -> {
                     if (change.wasAdded()) {
-                        tableView.getItems().add(change.getElementAdded());
-                        tableView.sort();
+                        ObservableAircraftState added = change.getElementAdded();
+                        if (!pendingRemovals.remove(added)) pendingAdditions.add(added);
                     } else if (change.wasRemoved()) {
-                        tableView.getItems().remove(change.getElementRemoved());
+                        ObservableAircraftState removed = change.getElementRemoved();
+                        if (!pendingAdditions.remove(removed)) pendingRemovals.add(removed);
                     }
+                    Platform.requestNextPulse();
                 });
 
+        tableView.sceneProperty().addListener((p, oldScene, newScene) -> {
+            if (oldScene != null) oldScene.removePreLayoutPulseListener(itemsUpdater);
+            if (newScene != null) newScene.addPreLayoutPulseListener(itemsUpdater);
+        });
+
         aircraftStateProperty.addListener((e, p, q) -> {
+            updateItems();
             if (!Objects.equals(tableView.getSelectionModel().getSelectedItem(), q)) tableView.scrollTo(q);
             tableView.getSelectionModel().select(q);
         });
@@ -196,4 +227,18 @@ public final class AircraftTableController {
         tableView.getSelectionModel().selectedItemProperty().addListener((value, oldValue, newValue) ->
                 aircraftStateProperty.set(newValue));
     }
+
+    private void updateItems() {
+        if (!pendingRemovals.isEmpty()) {
+            Set<ObservableAircraftState> removed = new HashSet<>(pendingRemovals);
+            pendingRemovals.clear();
+            tableView.getItems().removeAll(removed);
+        }
+        if (!pendingAdditions.isEmpty()) {
+            List<ObservableAircraftState> added = List.copyOf(pendingAdditions);
+            pendingAdditions.clear();
+            tableView.getItems().addAll(added);
+            tableView.sort();
+        }
+    }
 }
@@ -6,11 +6,13 @@ import javafx.application.Platform;
 import javafx.beans.property.*;
 import javafx.scene.canvas.Canvas;
 import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.image.Image;
 import javafx.scene.layout.Pane;
 
 import javafx.geometry.Point2D;
 
-import java.io.IOException;
+import java.util.HashSet;
+import java.util.Set;
 
 
 /**
@@ -21,16 +23,26 @@ import java.io.IOException;
  */
 public final class BaseMapController {
     private static final double SIZE_TILE = 256;
+    private static final int PREFETCH_RING_SIZE = 1;
+    private static final int PREFETCH_MAXIMUM_TILES = 32;
+    private static final int MAXIMUM_ANCESTOR_LEVELS = 8;
     private final SimpleObjectProperty<Point2D> lastMousePosition;
     private final TileManager tileManager;
     private final GraphicsContext graphicsContext;
     private final MapParameters mapParameters;
     private final Canvas canvas;
     private final Pane pane;
+    private final TilePrefetcher tilePrefetcher;
+    private final Set<TileManager.TileId> loadedTiles = new HashSet<>();
     private boolean redrawNeeded;
 
     /**
-     * Constructs a basemap controller
+     * Constructs a basemap controller. The tiles are loaded in the background by the tile manager
+     * and the map is redrawn when they arrive. Until then, the part of the closest ancestor tile
+     * in the memory cache covering a tile is drawn scaled up in its place. The images of the memory cache
+     * are drawn directly, so that their textures are reused from one frame to the next. Only a move of the
+     * map redraws the whole canvas: a tile arriving while the map is still is drawn alone over its ancestor.
+     * The tiles around the visible map and those of the adjacent zoom levels are prefetched.
      *
      * @param tileManager   tile manager
      * @param mapParameters parameters of the map
@@ -42,7 +54,12 @@ public final class BaseMapController {
         this.pane = new Pane(canvas);
         this.lastMousePosition = new SimpleObjectProperty<>();
         this.graphicsContext = canvas.getGraphicsContext2D();
+        this.tilePrefetcher = new TilePrefetcher(tileManager, mapParameters,
+                PREFETCH_RING_SIZE, PREFETCH_MAXIMUM_TILES);
         addListeners();
+        tileManager.setOnTileLoaded(tileId -> {
+            if (isVisible(tileId)) drawOnNextPulse(tileId);
+        });
         canvas.widthProperty().bind(pane.widthProperty());
         canvas.heightProperty().bind(pane.heightProperty());
     }
@@ -76,33 +93,83 @@ public final class BaseMapController {
         Platform.requestNextPulse();
     }
 
+    private void drawOnNextPulse(TileManager.TileId tileId) {
+        loadedTiles.add(tileId);
+        Platform.requestNextPulse();
+    }
+
     private void redrawIfNeeded() {
-        if (!redrawNeeded) return;
-        redrawNeeded = false;
-        graphicsContext.clearRect(0, 0, canvas.getWidth(), canvas.getHeight()); /// index 0
+        if (redrawNeeded) {
+            redrawNeeded = false;
+            loadedTiles.clear();
+            redraw();
+        } else if (!loadedTiles.isEmpty()) {
+            for (TileManager.TileId tileId : loadedTiles) {
+                if (isVisible(tileId)) drawTile(tileId);
+            }
+            loadedTiles.clear();
+        }
+    }
+
+    private void redraw() {
+        double width = canvas.getWidth();
+        double height = canvas.getHeight();
+        graphicsContext.clearRect(0, 0, width, height);
+        if (width <= 0 || height <= 0) return;
 
         int zoom = mapParameters.getZoom();
-        int xTileID = mapTileCoordinate(mapParameters.getMinX());
-        int yTileID = mapTileCoordinate(mapParameters.getMinY());
-        double xTilePos = xTileID * SIZE_TILE - mapParameters.getMinX();
-        double yTilePos = yTileID * SIZE_TILE - mapParameters.getMinY();
-        for (int sizeTileY = 0; sizeTileY < canvas.getHeight() - yTilePos; sizeTileY += SIZE_TILE) {
-            for (int sizeTileX = 0; sizeTileX < canvas.getWidth() - xTilePos; sizeTileX += SIZE_TILE) {
-                if (TileManager.TileId.isValid(zoom, xTileID, yTileID)) {
-                    int xTileAdd = (int) (sizeTileX / SIZE_TILE);
-                    try {
-                        graphicsContext.drawImage(
-                                tileManager.imageForTileAt(
-                                        new TileManager.TileId(zoom, xTileID + xTileAdd, yTileID)),
-                                sizeTileX + xTilePos,
-                                sizeTileY + yTilePos);
-
-                    } catch (IOException ignored) {
-                    }
+        double minX = mapParameters.getMinX();
+        double minY = mapParameters.getMinY();
+        tileManager.retainRequestsIf(this::isVisible);
+        for (int yTileID = mapTileCoordinate(minY); yTileID <= mapTileCoordinate(minY + height); yTileID++) {
+            for (int xTileID = mapTileCoordinate(minX); xTileID <= mapTileCoordinate(minX + width); xTileID++) {
+                if (!TileManager.TileId.isValid(zoom, xTileID, yTileID)) continue;
+                TileManager.TileId tileId = new TileManager.TileId(zoom, xTileID, yTileID);
+                Image image = tileManager.loadedImageForTileAt(tileId);
+                double x = xTileID * SIZE_TILE - minX;
+                double y = yTileID * SIZE_TILE - minY;
+                if (image != null) {
+                    graphicsContext.drawImage(image, x, y);
+                } else {
+                    drawAncestor(tileId, x, y);
                 }
             }
-            yTileID++;
         }
+        tilePrefetcher.update(width, height);
+    }
+
+    private void drawTile(TileManager.TileId tileId) {
+        Image image = tileManager.cachedImageForTileAt(tileId);
+        if (image == null) return;
+        double x = tileId.x() * SIZE_TILE - mapParameters.getMinX();
+        double y = tileId.y() * SIZE_TILE - mapParameters.getMinY();
+        graphicsContext.clearRect(x, y, SIZE_TILE, SIZE_TILE);
+        graphicsContext.drawImage(image, x, y);
+    }
+
+    private void drawAncestor(TileManager.TileId tileId, double x, double y) {
+        int maximumLevels = Math.min(MAXIMUM_ANCESTOR_LEVELS, tileId.zoom());
+        for (int levels = 1; levels <= maximumLevels; levels++) {
+            TileManager.TileId ancestorId = new TileManager.TileId(
+                    tileId.zoom() - levels, tileId.x() >> levels, tileId.y() >> levels);
+            Image ancestor = tileManager.cachedImageForTileAt(ancestorId);
+            if (ancestor != null) {
+                int mask = (1 << levels) - 1;
+                double sizeSource = SIZE_TILE / (1 << levels);
+                graphicsContext.drawImage(ancestor,
+                        (tileId.x() & mask) * sizeSource, (tileId.y() & mask) * sizeSource, sizeSource, sizeSource,
+                        x, y, SIZE_TILE, SIZE_TILE);
+                return;
+            }
+        }
+    }
+
+    private boolean isVisible(TileManager.TileId tileId) {
+        return tileId.zoom() == mapParameters.getZoom()
+                && mapTileCoordinate(mapParameters.getMinX()) <= tileId.x()
+                && tileId.x() <= mapTileCoordinate(mapParameters.getMinX() + canvas.getWidth())
+                && mapTileCoordinate(mapParameters.getMinY()) <= tileId.y()
+                && tileId.y() <= mapTileCoordinate(mapParameters.getMinY() + canvas.getHeight());
     }
 
     private void addListeners() {
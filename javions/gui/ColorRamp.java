@@ -4,7 +4,8 @@ import ch.epfl.javions.Preconditions;
 import javafx.scene.paint.Color;
 
 /**
- * Represents a color gradient
+ * Represents a color gradient. A ramp can be quantized into a lookup table of precomputed colors, from which
+ * the colors are then taken without interpolation nor allocation.
  *
  * @author Ünlüer Asli (329696)
  * @author Berlin Nicolas (355535)
@@ -12,6 +13,7 @@ import javafx.scene.paint.Color;
 public final class ColorRamp {
 
     private final Color[] color;
+    private final Color[] lookupTable;
 
     /**
      * Attribut which represents of the color gradient.
@@ -43,7 +45,64 @@ public final class ColorRamp {
     public ColorRamp(Color... color) {
         Preconditions.checkArgument(color.length >= 2);
         this.color = color.clone();
+        this.lookupTable = null;
+    }
+
+    private ColorRamp(Color[] color, Color[] lookupTable) {
+        this.color = color;
+        this.lookupTable = lookupTable;
+    }
+
+    /**
+     * Returns the same color gradient quantized into a lookup table of the given number of colors,
+     * evenly spread over the gradient
+     *
+     * @param size number of colors of the lookup table
+     * @return the quantized color gradient
+     * @throws IllegalArgumentException if the size is smaller than 2
+     */
+    public ColorRamp quantized(int size) {
+        Preconditions.checkArgument(size >= 2);
+        Color[] table = new Color[size];
+        for (int i = 0; i < size; i++) {
+            table[i] = interpolated((double) i / (size - 1));
+        }
+        return new ColorRamp(color, table);
+    }
+
+    /**
+     * Returns the number of colors of the lookup table of the quantized color gradient
+     *
+     * @return the number of colors of the lookup table, or 0 if the gradient is not quantized
+     */
+    public int lookupTableSize() {
+        return lookupTable == null ? 0 : lookupTable.length;
+    }
+
+    /**
+     * Returns the index, in the lookup table, of the color nearest to the given position
+     *
+     * @param colorValue position of the color in the gradient, clamped between 0 and 1
+     * @return the index of the color in the lookup table, 0 if the position is NaN
+     * @throws IllegalStateException if the gradient is not quantized
+     */
+    public int indexAt(double colorValue) {
+        if (lookupTable == null) throw new IllegalStateException();
+        if (!(colorValue > 0)) return 0;
+        return (int) Math.round(Math.min(colorValue, 1) * (lookupTable.length - 1));
+    }
 
+    /**
+     * Returns a color of the lookup table of the quantized color gradient
+     *
+     * @param index of the color in the lookup table
+     * @return the color at this index
+     * @throws IllegalStateException     if the gradient is not quantized
+     * @throws IndexOutOfBoundsException if the index is not an index of the lookup table
+     */
+    public Color atIndex(int index) {
+        if (lookupTable == null) throw new IllegalStateException();
+        return lookupTable[index];
     }
 
     /**
@@ -53,9 +112,14 @@ public final class ColorRamp {
      * @param colorValue a double value of a color
      * @return if colorValue is negative it returns first element in the sequence if is it greater or equals to 1,
      * it returns the last element otherwise, if colorValue situated between the two color at given sequence,
-     * it mixed two color and returns new color.
+     * it mixed two color and returns new color. If the gradient is quantized, the nearest color of the lookup
+     * table is returned instead.
      */
     public Color at(double colorValue) {
+        return lookupTable == null ? interpolated(colorValue) : lookupTable[indexAt(colorValue)];
+    }
+
+    private Color interpolated(double colorValue) {
         if (colorValue <= 0) {
             return color[0];
         } else if (colorValue >= 1) {
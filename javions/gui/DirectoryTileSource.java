@@ -0,0 +1,38 @@
+package ch.epfl.javions.gui;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.Objects;
+
+/**
+ * Represents a source of tiles stored in a directory, with the layout zoom/x/y.png of a tile server
+ *
+ * @author Ünlüer Asli (329696)
+ * @author Berlin Nicolas (355535)
+ */
+public final class DirectoryTileSource implements TileSource {
+    static final String SCHEME = "file:";
+    private final Path directory;
+
+    /**
+     * Constructs a source of the tiles of the directory
+     *
+     * @param directory containing the tiles
+     * @throws NullPointerException if the directory is null
+     */
+    public DirectoryTileSource(Path directory) {
+        this.directory = Objects.requireNonNull(directory);
+    }
+
+    @Override
+    public byte[] tileBytes(TileManager.TileId tileId) throws IOException {
+        try {
+            return Files.readAllBytes(DiskTileCache.path(directory, tileId));
+        } catch (NoSuchFileException e) {
+            throw new FileNotFoundException("Tile not found: " + tileId);
+        }
+    }
+}
@@ -0,0 +1,327 @@
+package ch.epfl.javions.gui;
+
+import ch.epfl.javions.ByteString;
+import ch.epfl.javions.Preconditions;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Represents the disk cache of the tiles, stored in a directory as zoom/x/y.png files. An index of the
+ * size of the tiles, ordered from the least to the most recently used, is built when the cache is
+ * constructed and kept up to date afterwards, so that the file system is not queried on reads. The least
+ * recently used tiles are deleted to keep the cache under its maximum size.
+ * Small tiles, like those of the open sea, are deduplicated by the hash of their content: a tile identical
+ * to one read or written since the construction of the cache is stored as a hard link to its file.
+ * The size of the cache counts every link, so it overestimates the space actually used. A tile is always
+ * written to a temporary file then moved over its file, so that writing a linked tile replaces its link
+ * instead of changing the tiles linked to it.
+ * The evicted tiles are removed from the index under the lock but their files are deleted after releasing it,
+ * so that reads and writes of other tiles do not wait for the file system. The file of an evicted tile is
+ * not deleted if the tile has been written again meanwhile, and a write of a tile whose file is being deleted
+ * waits for the deletion to finish, so that a tile written again never loses its new file.
+ *
+ * @author Ünlüer Asli (329696)
+ * @author Berlin Nicolas (355535)
+ */
+final class DiskTileCache implements TileStore {
+    private static final String FORMAT = ".png";
+    private static final String TEMPORARY_SUFFIX = ".tmp";
+    private static final int INITIAL_CAPACITY = 1 << 12;
+    private static final int DEDUPLICATION_MAXIMUM_BYTES = 8192;
+
+    private final Path directory;
+    private final long maximumBytes;
+    private final LinkedHashMap<TileManager.TileId, Long> tileSizes = new LinkedHashMap<>(
+            INITIAL_CAPACITY, 0.75f, true);
+    private final Map<ByteString, TileManager.TileId> tilesByContent = new HashMap<>();
+    private final Map<TileManager.TileId, ByteString> contentsByTile = new HashMap<>();
+    private final Map<TileManager.TileId, Integer> writingTiles = new HashMap<>();
+    private final Set<TileManager.TileId> deletingTiles = new HashSet<>();
+    private long bytes;
+    private long evictions;
+    private long linkedTiles;
+
+    /**
+     * Constructs the cache, indexing the tiles already present in the directory
+     *
+     * @param directory    of the cache
+     * @param maximumBytes maximum number of bytes of the tiles of the cache
+     * @throws IllegalArgumentException if the maximum number of bytes is negative
+     * @throws UncheckedIOException     if an error occurs while indexing the directory
+     */
+    DiskTileCache(Path directory, long maximumBytes) {
+        Preconditions.checkArgument(maximumBytes >= 0);
+        this.directory = directory;
+        this.maximumBytes = maximumBytes;
+        try {
+            buildIndex();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        deleteFiles(evictLeastRecentlyUsed());
+    }
+
+    /**
+     * Reads the image of the tile
+     *
+     * @param tileId of the tile
+     * @return the compressed image of the tile, or null if it is not in the cache
+     * @throws IOException in case of input/output error
+     */
+    @Override
+    public byte[] read(TileManager.TileId tileId) throws IOException {
+        synchronized (this) {
+            if (tileSizes.get(tileId) == null) return null;
+        }
+        try {
+            byte[] imageBytes = Files.readAllBytes(path(tileId));
+            if (imageBytes.length <= DEDUPLICATION_MAXIMUM_BYTES) {
+                ByteString contentHash = TileManager.contentHash(imageBytes);
+                synchronized (this) {
+                    if (!writingTiles.containsKey(tileId) && tilesByContent.putIfAbsent(contentHash, tileId) == null)
+                        contentsByTile.put(tileId, contentHash);
+                }
+            }
+            return imageBytes;
+        } catch (NoSuchFileException e) {
+            synchronized (this) {
+                Long size = tileSizes.remove(tileId);
+                if (size != null) bytes -= size;
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Writes the image of the tile in the cache, deleting the least recently used tiles if the cache
+     * exceeds its maximum size
+     *
+     * @param tileId     of the tile
+     * @param imageBytes compressed image of the tile
+     * @throws IOException in case of input/output error
+     */
+    @Override
+    public void write(TileManager.TileId tileId, byte[] imageBytes) throws IOException {
+        Path path = path(tileId);
+        Files.createDirectories(path.getParent());
+        ByteString contentHash = imageBytes.length <= DEDUPLICATION_MAXIMUM_BYTES
+                ? TileManager.contentHash(imageBytes)
+                : null;
+        synchronized (this) {
+            while (deletingTiles.contains(tileId)) {
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException();
+                }
+            }
+            writingTiles.merge(tileId, 1, Integer::sum);
+            forgetContent(tileId);
+        }
+        List<TileManager.TileId> evictedTiles = List.of();
+        boolean written = false;
+        try {
+            if (!writeAsLink(path, contentHash)) {
+                writeFile(path, imageBytes);
+                if (contentHash != null) {
+                    synchronized (this) {
+                        TileManager.TileId previousTile = tilesByContent.put(contentHash, tileId);
+                        if (previousTile != null) contentsByTile.remove(previousTile, contentHash);
+                        contentsByTile.put(tileId, contentHash);
+                    }
+                }
+            }
+            written = true;
+        } finally {
+            synchronized (this) {
+                writingTiles.computeIfPresent(tileId, (id, writers) -> writers == 1 ? null : writers - 1);
+                if (written) {
+                    Long previousSize = tileSizes.put(tileId, (long) imageBytes.length);
+                    bytes += imageBytes.length - (previousSize == null ? 0 : previousSize);
+                    evictedTiles = evictLeastRecentlyUsed();
+                }
+            }
+        }
+        deleteFiles(evictedTiles);
+    }
+
+    /**
+     * Returns the number of bytes of the tiles of the cache
+     *
+     * @return the number of bytes of the cache
+     */
+    synchronized long bytes() {
+        return bytes;
+    }
+
+    /**
+     * Returns the number of tiles written as a hard link to an identical tile
+     *
+     * @return the number of linked tiles
+     */
+    synchronized long linkedTiles() {
+        return linkedTiles;
+    }
+
+    /**
+     * Returns the number of tiles deleted to keep the cache under its maximum size
+     *
+     * @return the number of evictions
+     */
+    synchronized long evictions() {
+        return evictions;
+    }
+
+    private Path path(TileManager.TileId tileId) {
+        return path(directory, tileId);
+    }
+
+    private static void writeFile(Path path, byte[] imageBytes) throws IOException {
+        Path temporary = Files.createTempFile(path.getParent(), path.getFileName().toString(), TEMPORARY_SUFFIX);
+        try {
+            Files.write(temporary, imageBytes);
+            Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temporary);
+            throw e;
+        }
+    }
+
+    private boolean writeAsLink(Path path, ByteString contentHash) {
+        if (contentHash == null) return false;
+        TileManager.TileId identicalTile;
+        synchronized (this) {
+            identicalTile = tilesByContent.get(contentHash);
+        }
+        if (identicalTile == null) return false;
+        try {
+            Files.deleteIfExists(path);
+            Files.createLink(path, path(identicalTile));
+            synchronized (this) {
+                linkedTiles++;
+            }
+            return true;
+        } catch (IOException | UnsupportedOperationException e) {
+            synchronized (this) {
+                if (tilesByContent.remove(contentHash, identicalTile)) contentsByTile.remove(identicalTile);
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Returns the path of the file of the tile in a directory of tiles
+     *
+     * @param directory of the tiles
+     * @param tileId    of the tile
+     * @return the path directory/zoom/x/y.png
+     */
+    static Path path(Path directory, TileManager.TileId tileId) {
+        return directory.resolve(Integer.toString(tileId.zoom()))
+                .resolve(Integer.toString(tileId.x()))
+                .resolve(tileId.y() + FORMAT);
+    }
+
+    private synchronized List<TileManager.TileId> evictLeastRecentlyUsed() {
+        List<TileManager.TileId> evictedTiles = new ArrayList<>();
+        Iterator<Map.Entry<TileManager.TileId, Long>> iterator = tileSizes.entrySet().iterator();
+        while (bytes > maximumBytes && iterator.hasNext()) {
+            Map.Entry<TileManager.TileId, Long> eldest = iterator.next();
+            evictedTiles.add(eldest.getKey());
+            forgetContent(eldest.getKey());
+            bytes -= eldest.getValue();
+            iterator.remove();
+            evictions++;
+        }
+        return evictedTiles;
+    }
+
+    private void forgetContent(TileManager.TileId tileId) {
+        ByteString contentHash = contentsByTile.remove(tileId);
+        if (contentHash != null) tilesByContent.remove(contentHash, tileId);
+    }
+
+    private void deleteFiles(List<TileManager.TileId> tileIds) {
+        for (TileManager.TileId tileId : tileIds) {
+            synchronized (this) {
+                if (tileSizes.containsKey(tileId) || writingTiles.containsKey(tileId)) continue;
+                deletingTiles.add(tileId);
+            }
+            try {
+                Files.deleteIfExists(path(tileId));
+            } catch (IOException ignored) {
+            } finally {
+                synchronized (this) {
+                    deletingTiles.remove(tileId);
+                    notifyAll();
+                }
+            }
+        }
+    }
+
+    private void buildIndex() throws IOException {
+        if (!Files.isDirectory(directory)) return;
+        record IndexedTile(TileManager.TileId tileId, long size, long lastUseMs) {
+        }
+        List<IndexedTile> tiles = new ArrayList<>();
+        Files.walkFileTree(directory, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attributes) throws IOException {
+                if (file.getFileName().toString().endsWith(TEMPORARY_SUFFIX)) {
+                    Files.deleteIfExists(file);
+                    return FileVisitResult.CONTINUE;
+                }
+                TileManager.TileId tileId = tileId(directory.relativize(file));
+                if (tileId != null && attributes.isRegularFile()) {
+                    long lastUseMs = Math.max(attributes.lastAccessTime().toMillis(),
+                            attributes.lastModifiedTime().toMillis());
+                    tiles.add(new IndexedTile(tileId, attributes.size(), lastUseMs));
+                }
+                return FileVisitResult.CONTINUE;
+            }
+        });
+        tiles.sort(Comparator.comparingLong(IndexedTile::lastUseMs));
+        for (IndexedTile tile : tiles) {
+            tileSizes.put(tile.tileId(), tile.size());
+            bytes += tile.size();
+        }
+    }
+
+    /**
+     * Returns the tile whose file has the given path relative to a directory of tiles
+     *
+     * @param relativePath of the file, of the form zoom/x/y.png
+     * @return the tile, or null if the path is not the one of a valid tile
+     */
+    static TileManager.TileId tileId(Path relativePath) {
+        String fileName = relativePath.getFileName().toString();
+        if (relativePath.getNameCount() != 3 || !fileName.endsWith(FORMAT)) return null;
+        try {
+            int zoom = Integer.parseInt(relativePath.getName(0).toString());
+            int x = Integer.parseInt(relativePath.getName(1).toString());
+            int y = Integer.parseInt(fileName.substring(0, fileName.length() - FORMAT.length()));
+            return TileManager.TileId.isValid(zoom, x, y) ? new TileManager.TileId(zoom, x, y) : null;
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package ch.epfl.javions.gui;
+
+import ch.epfl.javions.Preconditions;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Represents a tile server. All the requests go through a single HTTP client, which keeps its connections
+ * alive and, over https, uses HTTP/2 when the server supports it, so that the connections are reused from tile
+ * to tile. Over plain http, HTTP/1.1 is used directly, as an attempt to upgrade each request to HTTP/2 would
+ * only slow it down.
+ * Failed requests are retried with an exponential backoff, except when the server has no image for the tile.
+ * When the server gives a Retry-After header with a 429 or 5xx response, the retry waits at least the given
+ * delay, and the request fails at once if this delay is longer than the timeout.
+ *
+ * @author Ünlüer Asli (329696)
+ * @author Berlin Nicolas (355535)
+ */
+public final class HttpTileSource implements TileSource {
+    private static final String FORMAT = ".png";
+    private static final String DEFAULT_SCHEME = "https://";
+    private static final String SCHEME_SEPARATOR = "://";
+    private static final String USER_AGENT = "Javions";
+    private static final String RETRY_AFTER = "Retry-After";
+    private static final Duration DEFAULT_TIMEOUT = Duration.ofSeconds(10);
+    private static final int DEFAULT_RETRIES = 2;
+    private static final long INITIAL_BACKOFF_MS = 250;
+    private static final int STATUS_OK = 200;
+    private static final int STATUS_NOT_FOUND = 404;
+    private static final int STATUS_TOO_MANY_REQUESTS = 429;
+    private static final int STATUS_SERVER_ERROR = 500;
+    private final String server;
+    private final Duration timeout;
+    private final int retries;
+    private final HttpClient client;
+
+    /**
+     * Constructs the source of the tiles of a server, whose requests time out after 10 seconds and are retried twice
+     *
+     * @param server of the tiles, with an optional scheme (https:// by default), for example
+     *               "tile.openstreetmap.org" or "http://localhost:8080"
+     */
+    public HttpTileSource(String server) {
+        this(server, DEFAULT_TIMEOUT, DEFAULT_RETRIES);
+    }
+
+    /**
+     * Constructs the source of the tiles of a server
+     *
+     * @param server  of the tiles, with an optional scheme (https:// by default)
+     * @param timeout maximum duration of the connection to the server and of each request
+     * @param retries maximum number of times a failed request is retried
+     * @throws IllegalArgumentException if the timeout is not positive or the number of retries is negative
+     */
+    public HttpTileSource(String server, Duration timeout, int retries) {
+        Preconditions.checkArgument(!timeout.isNegative() && !timeout.isZero() && retries >= 0);
+        this.server = server.contains(SCHEME_SEPARATOR) ? server : DEFAULT_SCHEME + server;
+        this.timeout = timeout;
+        this.retries = retries;
+        this.client = HttpClient.newBuilder()
+                .version(this.server.startsWith(DEFAULT_SCHEME)
+                        ? HttpClient.Version.HTTP_2
+                        : HttpClient.Version.HTTP_1_1)
+                .connectTimeout(timeout)
+                .followRedirects(HttpClient.Redirect.NORMAL)
+                .build();
+    }
+
+    @Override
+    public byte[] tileBytes(TileManager.TileId tileId) throws IOException {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(server + "/"
+                        + tileId.zoom() + "/" + tileId.x() + "/" + tileId.y() + FORMAT))
+                .timeout(timeout)
+                .header("User-Agent", USER_AGENT)
+                .GET()
+                .build();
+        for (int attempt = 0; ; attempt++) {
+            IOException failure;
+            long delayMs = INITIAL_BACKOFF_MS << attempt;
+            try {
+                HttpResponse<byte[]> response = client.send(request, HttpResponse.BodyHandlers.ofByteArray());
+                int status = response.statusCode();
+                if (status == STATUS_OK) return response.body();
+                if (status == STATUS_NOT_FOUND) throw new FileNotFoundException("Tile not found: " + tileId);
+                failure = new IOException("Unexpected status " + status + " for tile " + tileId);
+                if (status != STATUS_TOO_MANY_REQUESTS && status < STATUS_SERVER_ERROR) throw failure;
+                delayMs = Math.max(delayMs, retryAfterMs(response));
+            } catch (FileNotFoundException e) {
+                throw e;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while loading tile " + tileId);
+            } catch (IOException e) {
+                failure = e;
+            }
+            if (attempt >= retries || delayMs > timeout.toMillis()) throw failure;
+            backOff(delayMs);
+        }
+    }
+
+    /**
+     * Returns the delay asked by the Retry-After header of a response, given either in seconds or as a date
+     *
+     * @param response of the server
+     * @return the delay asked by the server in milliseconds, or 0 if the header is absent or invalid
+     */
+    private static long retryAfterMs(HttpResponse<?> response) {
+        Optional<String> retryAfter = response.headers().firstValue(RETRY_AFTER);
+        if (retryAfter.isEmpty()) return 0;
+        String value = retryAfter.get().trim();
+        try {
+            return TimeUnit.SECONDS.toMillis(Math.max(0, Long.parseLong(value)));
+        } catch (NumberFormatException e) {
+            try {
+                ZonedDateTime date = ZonedDateTime.parse(value, DateTimeFormatter.RFC_1123_DATE_TIME);
+                return Math.max(0, Duration.between(ZonedDateTime.now(date.getZone()), date).toMillis());
+            } catch (DateTimeParseException dateException) {
+                return 0;
+            }
+        }
+    }
+
+    private static void backOff(long delayMs) throws InterruptedIOException {
+        try {
+            TimeUnit.MILLISECONDS.sleep(delayMs);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting to retry");
+        }
+    }
+}
@@ -4,7 +4,8 @@ import ch.epfl.javions.ByteString;
 import ch.epfl.javions.adsb.Message;
 import ch.epfl.javions.adsb.MessageParser;
 import ch.epfl.javions.adsb.RawMessage;
-import ch.epfl.javions.aircraft.AircraftDatabase;
+import ch.epfl.javions.aircraft.MappedAircraftDatabase;
+import ch.epfl.javions.aircraft.ReloadingAircraftDatabase;
 import ch.epfl.javions.demodulation.AdsbDemodulator;
 import javafx.animation.AnimationTimer;
 import javafx.application.Application;
@@ -15,6 +16,7 @@ import javafx.geometry.Orientation;
 import javafx.scene.Scene;
 import javafx.scene.control.SplitPane;
 import javafx.scene.layout.BorderPane;
+import javafx.scene.layout.Pane;
 import javafx.scene.layout.StackPane;
 import javafx.stage.Stage;
 
@@ -42,6 +44,9 @@ public final class Main extends Application {
     private static final int FIRST_ELEMENT = 0;
 
     private static final double PRECISION = 1e+9;
+    private static final String COMPILED_DATABASE = "aircraft.bin";
+    private static final String CANVAS_AIRCRAFT_LAYER_PROPERTY = "javions.canvasAircraftLayer";
+    private static final String CLUSTERING_ZOOM_PROPERTY = "javions.clusteringZoom";
     private final ConcurrentLinkedQueue<RawMessage> messages = new ConcurrentLinkedQueue<>();
 
     /**
@@ -67,7 +72,10 @@ public final class Main extends Application {
         URL dbUrl = getClass().getResource("/aircraft.zip");
         assert dbUrl != null;
         String file = Path.of(dbUrl.toURI()).toString();
-        AircraftDatabase dataBase = new AircraftDatabase(file);
+        // the compiled database, next to the zip file, is only rebuilt when the zip file changes, and is mapped
+        // rather than loaded; its first version is opened in the background so that the window shows at once
+        ReloadingAircraftDatabase dataBase = new ReloadingAircraftDatabase(Path.of(file),
+                path -> MappedAircraftDatabase.open(path.toString(), path.resolveSibling(COMPILED_DATABASE)));
 
         MapParameters mapParameters = new MapParameters(ZOOM_LEVEL, MINX, MINY);
         TileManager tiles = new TileManager(Path.of("tile-cache"), "tile.openstreetmap.org");
@@ -75,8 +83,13 @@ public final class Main extends Application {
 
         AircraftStateManager aircraftStateManager = new AircraftStateManager(dataBase);
         ObjectProperty<ObservableAircraftState> observableAircraftState = new SimpleObjectProperty<>();
-        AircraftController  controller = new AircraftController(
-                mapParameters, aircraftStateManager.states(), observableAircraftState);
+        // the canvas layer, enabled with -Djavions.canvasAircraftLayer=true, scales to thousands of aircraft;
+        // the aircraft are grouped in clusters below the zoom level given by -Djavions.clusteringZoom, if any
+        Pane aircraftPane = Boolean.getBoolean(CANVAS_AIRCRAFT_LAYER_PROPERTY)
+                ? new AircraftCanvasController(
+                        mapParameters, aircraftStateManager.states(), observableAircraftState).pane()
+                : new AircraftController(mapParameters, aircraftStateManager.states(), observableAircraftState,
+                        Integer.getInteger(CLUSTERING_ZOOM_PROPERTY, AircraftController.DEFAULT_CLUSTERING_ZOOM)).pane();
         AircraftTableController tableController = new AircraftTableController(
                 aircraftStateManager.states(), observableAircraftState);
 
@@ -86,7 +99,7 @@ public final class Main extends Application {
 
         lineController.aircraftCountProperty().bind(Bindings.size(aircraftStateManager.states()));
 
-        StackPane root = new StackPane(mapController.pane(), controller.pane());
+        StackPane root = new StackPane(mapController.pane(), aircraftPane);
 
         BorderPane borderPane = new BorderPane(tableController.pane());
         borderPane.setTop(lineController.pane());
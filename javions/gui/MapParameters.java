@@ -16,8 +16,8 @@ public final class MapParameters {
     private final IntegerProperty zoom;
     private final DoubleProperty minX;
     private final DoubleProperty minY;
-    private static final int MIN_VALUE_ZOOM = 6;
-    private static final int MAX_VALUE_ZOOM = 19;
+    static final int MIN_VALUE_ZOOM = 6;
+    static final int MAX_VALUE_ZOOM = 19;
 
     /**
      * @param zoom level of zoom in map
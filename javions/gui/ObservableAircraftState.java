@@ -6,7 +6,6 @@ import ch.epfl.javions.adsb.CallSign;
 import ch.epfl.javions.aircraft.AircraftData;
 import ch.epfl.javions.aircraft.IcaoAddress;
 import javafx.beans.property.*;
-import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
 
 import java.util.Objects;
@@ -16,6 +15,7 @@ import java.util.Objects;
  */
 
 public final class ObservableAircraftState implements AircraftStateSetter {
+    private static final int DEFAULT_TRAJECTORY_SIZE = 8192;
     private final AircraftData aircraftData;
     private final IcaoAddress icaoAddress;
     private final LongProperty lastMessageTimeStampNsProperty = new SimpleLongProperty();
@@ -25,12 +25,12 @@ public final class ObservableAircraftState implements AircraftStateSetter {
     private final DoubleProperty altitudeProperty = new SimpleDoubleProperty(Double.NaN);
     private final DoubleProperty velocityProperty = new SimpleDoubleProperty(Double.NaN);
     private final DoubleProperty trackOrHeadingProperty = new SimpleDoubleProperty(Double.NaN);
-    private final ObservableList<AirbornePos> trajectory = FXCollections.observableArrayList();
-    private final ObservableList<AirbornePos> unmodifiedTrajectory = FXCollections.unmodifiableObservableList(trajectory);
+    private final TrajectoryStore trajectory;
     private long lastMessageAddedInTrajectory;
 
     /**
-     * Constructs an observable and updatable aircraft state with an ICAO address and an aircraftdata
+     * Constructs an observable and updatable aircraft state with an ICAO address and an aircraftdata,
+     * whose trajectory keeps the last 8192 positions
      *
      * @param icaoAddress  of the aircraft
      * @param aircraftData of the aircraft
@@ -38,9 +38,25 @@ public final class ObservableAircraftState implements AircraftStateSetter {
      */
 
     public ObservableAircraftState(IcaoAddress icaoAddress, AircraftData aircraftData) {
+        this(icaoAddress, aircraftData, DEFAULT_TRAJECTORY_SIZE, TrajectoryEviction.DROP_OLDEST);
+    }
+
+    /**
+     * Constructs an observable and updatable aircraft state with an ICAO address and an aircraftdata
+     *
+     * @param icaoAddress           of the aircraft
+     * @param aircraftData          of the aircraft
+     * @param maximumTrajectorySize maximum number of positions of the trajectory
+     * @param trajectoryEviction    policy applied when a position is added to a full trajectory
+     * @throws NullPointerException     if icaoAddress or the eviction policy is null
+     * @throws IllegalArgumentException if the maximum number of positions is smaller than 2
+     */
+    public ObservableAircraftState(IcaoAddress icaoAddress, AircraftData aircraftData,
+                                   int maximumTrajectorySize, TrajectoryEviction trajectoryEviction) {
         Objects.requireNonNull(icaoAddress);
         this.icaoAddress = icaoAddress;
         this.aircraftData = aircraftData;
+        this.trajectory = new TrajectoryStore(maximumTrajectorySize, trajectoryEviction);
     }
 
     /**
@@ -62,6 +78,21 @@ public final class ObservableAircraftState implements AircraftStateSetter {
     public record AirbornePos(GeoPos position, double altitude) {
     }
 
+    /**
+     * Represents the policy applied when a position is added to a full trajectory
+     */
+    public enum TrajectoryEviction {
+        /**
+         * The oldest position is removed
+         */
+        DROP_OLDEST,
+        /**
+         * Every other position of the older half of the trajectory is removed, so that the whole
+         * flight is kept with a lower resolution for its older part
+         */
+        DECIMATE
+    }
+
     /**
      * Returns the aircraft data
      *
@@ -176,13 +207,22 @@ public final class ObservableAircraftState implements AircraftStateSetter {
     }
 
     /**
-     * Returns an unmodifiable list of the trajectory
+     * Returns an unmodifiable list of the trajectory, which holds at most its maximum number of positions
      *
      * @return unmodifiable list
      */
 
     public ObservableList<AirbornePos> getTrajectory() {
-        return unmodifiedTrajectory;
+        return trajectory;
+    }
+
+    /**
+     * Returns the number of bytes used to store the trajectory
+     *
+     * @return the number of bytes used to store the trajectory
+     */
+    public long trajectoryBytes() {
+        return trajectory.bytes();
     }
 
     /**
@@ -254,7 +294,7 @@ public final class ObservableAircraftState implements AircraftStateSetter {
     public void setPosition(GeoPos position) {
 
         if (!Double.isNaN(getAltitude())) {
-            trajectory.add(new AirbornePos(position, getAltitude()));
+            trajectory.add(position, getAltitude(), getLastMessageTimeStampNs());
             lastMessageAddedInTrajectory = getLastMessageTimeStampNs();
         }
         positionProperty.set(position);
@@ -273,10 +313,10 @@ public final class ObservableAircraftState implements AircraftStateSetter {
     public void setAltitude(double altitude) {
         if (Objects.nonNull(getPosition())) {
             if (trajectory.isEmpty()) {
-                trajectory.add(new AirbornePos(getPosition(), altitude));
+                trajectory.add(getPosition(), altitude, getLastMessageTimeStampNs());
                 lastMessageAddedInTrajectory = getLastMessageTimeStampNs();
             } else if (getLastMessageTimeStampNs() == lastMessageAddedInTrajectory) {
-                trajectory.set(trajectory.size() - 1, new AirbornePos(getPosition(), altitude));
+                trajectory.replaceLast(getPosition(), altitude);
             }
         }
         altitudeProperty.set(altitude);
@@ -0,0 +1,475 @@
+package ch.epfl.javions.gui;
+
+import ch.epfl.javions.ByteString;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Represents a store of tiles packed in a single append-only file, with a memory-mapped index. The index is
+ * a hash table with open addressing, keyed by (zoom, x, y), whose entries give the position and the length
+ * of the image of the tile in the packed file. Opening an archive does not read the tiles, so that a large
+ * archive can be used immediately, and without any network access.
+ * Small tiles, like those of the open sea, are deduplicated by the hash of their content: an identical
+ * tile already read or written since the opening of the archive is referenced instead of being appended again.
+ * Opening an archive scans its index, but not its tiles, to count the tiles sharing every small image.
+ * Writing a tile again appends its new image, and the old one becomes unused once no tile references it.
+ * Once the unused images make up half of the packed file, the archive is compacted: its images still in use
+ * are copied into a new packed file and a new index is built for it, both in temporary files, and they replace
+ * the old ones by atomic moves, the packed file first. The index stores the size of its packed file, which
+ * must not be smaller when the archive is opened, so that an archive whose compaction was interrupted between
+ * the two moves is rejected instead of reading wrong images.
+ *
+ * @author Ünlüer Asli (329696)
+ * @author Berlin Nicolas (355535)
+ */
+public final class TileArchive implements TileStore, Closeable {
+    private static final String INDEX_SUFFIX = ".idx";
+    private static final String TEMPORARY_SUFFIX = ".tmp";
+    private static final int MAGIC = 0x4A565441;
+    private static final int VERSION = 2;
+    private static final int HEADER_BYTES = 4 * Integer.BYTES + Long.BYTES;
+    private static final int SIZE_POSITION = 3 * Integer.BYTES;
+    private static final int PACK_SIZE_POSITION = 4 * Integer.BYTES;
+    private static final int ENTRY_BYTES = 2 * Long.BYTES;
+    private static final int INITIAL_CAPACITY = 1 << 12;
+    private static final int COORDINATE_BITS = 20;
+    private static final int LENGTH_BITS = 24;
+    private static final long KEY_MARKER = 1L << 62;
+    private static final long HASH_MULTIPLIER = 0x9E3779B97F4A7C15L;
+    private static final int DEDUPLICATION_MAXIMUM_BYTES = 8192;
+    private static final long MINIMUM_COMPACTION_BYTES = 1L << 20;
+    private static final long NO_LOCATION = -1;
+
+    private final Path packPath;
+    private final Path indexPath;
+    private final Map<ByteString, Long> locationsByContent = new HashMap<>();
+    private final Map<Long, ByteString> contentsByLocation = new HashMap<>();
+    private final Map<Long, Integer> referenceCounts = new HashMap<>();
+    private long deduplicatedWrites;
+    private long unusedBytes;
+    private FileChannel packChannel;
+    private FileChannel retiredPackChannel;
+    private FileChannel indexChannel;
+    private MappedByteBuffer index;
+    private int capacity;
+    private int size;
+
+    /**
+     * Opens the archive stored in the given file, creating it if it does not exist.
+     * Its index is stored next to it, in a file with the same name followed by .idx.
+     *
+     * @param file of the archive
+     * @throws IOException in case of input/output error, or if the index is not valid or does not match
+     *                     the packed file
+     */
+    public TileArchive(Path file) throws IOException {
+        this.packPath = file.toAbsolutePath();
+        this.indexPath = packPath.resolveSibling(packPath.getFileName() + INDEX_SUFFIX);
+        this.packChannel = FileChannel.open(packPath,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        if (!Files.exists(indexPath)) createIndex(indexPath, INITIAL_CAPACITY, 0);
+        mapIndex();
+        countReferences();
+    }
+
+    /**
+     * Reads the image of the tile
+     *
+     * @param tileId of the tile
+     * @return the compressed image of the tile, or null if it is not in the archive
+     * @throws IOException in case of input/output error
+     */
+    @Override
+    public byte[] read(TileManager.TileId tileId) throws IOException {
+        long location;
+        FileChannel channel;
+        synchronized (this) {
+            int slot = slot(key(tileId));
+            if (slot < 0) return null;
+            location = index.getLong(entryPosition(slot) + Long.BYTES);
+            channel = packChannel;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(length(location));
+        long position = position(location);
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position + buffer.position());
+            if (read < 0) throw new EOFException();
+        }
+        byte[] imageBytes = buffer.array();
+        if (imageBytes.length <= DEDUPLICATION_MAXIMUM_BYTES) {
+            ByteString contentHash = TileManager.contentHash(imageBytes);
+            synchronized (this) {
+                if (referenceCounts.containsKey(location)) rememberContent(contentHash, location);
+            }
+        }
+        return imageBytes;
+    }
+
+    /**
+     * Appends the image of the tile to the archive, compacting the archive if the images no longer used
+     * make up half of its packed file
+     *
+     * @param tileId     of the tile
+     * @param imageBytes compressed image of the tile
+     * @throws IOException in case of input/output error
+     */
+    @Override
+    public synchronized void write(TileManager.TileId tileId, byte[] imageBytes) throws IOException {
+        if (imageBytes.length >= 1 << LENGTH_BITS) throw new IOException("Tile too large: " + tileId);
+        ByteString contentHash = imageBytes.length <= DEDUPLICATION_MAXIMUM_BYTES
+                ? TileManager.contentHash(imageBytes)
+                : null;
+        Long existingLocation = contentHash == null ? null : locationsByContent.get(contentHash);
+        long location;
+        if (existingLocation != null) {
+            location = existingLocation;
+            deduplicatedWrites++;
+        } else {
+            long position = packChannel.size();
+            ByteBuffer buffer = ByteBuffer.wrap(imageBytes);
+            while (buffer.hasRemaining()) {
+                packChannel.write(buffer, position + buffer.position());
+            }
+            location = (position << LENGTH_BITS) | imageBytes.length;
+            index.putLong(PACK_SIZE_POSITION, position + imageBytes.length);
+            if (contentHash != null) rememberContent(contentHash, location);
+        }
+        long replacedLocation = put(key(tileId), location);
+        if (replacedLocation == location) return;
+        if (isShareable(location)) referenceCounts.merge(location, 1, Integer::sum);
+        if (replacedLocation != NO_LOCATION) release(replacedLocation);
+        if (unusedBytes >= MINIMUM_COMPACTION_BYTES && 2 * unusedBytes >= index.getLong(PACK_SIZE_POSITION))
+            compact();
+    }
+
+    /**
+     * Compacts the archive, by copying the images used by its tiles into a new packed file that replaces
+     * the old one, so that the images no longer used take no space. Does nothing if every image is used.
+     *
+     * @throws IOException in case of input/output error
+     */
+    public synchronized void compact() throws IOException {
+        Path temporaryPack = Files.createTempFile(packPath.getParent(), packPath.getFileName().toString(),
+                TEMPORARY_SUFFIX);
+        Path temporaryIndex = Files.createTempFile(indexPath.getParent(), indexPath.getFileName().toString(),
+                TEMPORARY_SUFFIX);
+        Map<Long, Long> newLocations = new HashMap<>();
+        try {
+            long newPackSize = 0;
+            try (FileChannel compacted = FileChannel.open(temporaryPack, StandardOpenOption.WRITE)) {
+                for (int slot = 0; slot < capacity; slot++) {
+                    if (index.getLong(entryPosition(slot)) == 0) continue;
+                    long location = index.getLong(entryPosition(slot) + Long.BYTES);
+                    if (newLocations.containsKey(location)) continue;
+                    int length = length(location);
+                    for (long copied = 0; copied < length; ) {
+                        copied += packChannel.transferTo(position(location) + copied, length - copied, compacted);
+                    }
+                    newLocations.put(location, (newPackSize << LENGTH_BITS) | length);
+                    newPackSize += length;
+                }
+                compacted.force(true);
+            }
+            if (newPackSize == index.getLong(PACK_SIZE_POSITION)) {
+                Files.delete(temporaryPack);
+                Files.delete(temporaryIndex);
+                unusedBytes = 0;
+                return;
+            }
+            createIndex(temporaryIndex, capacity, newPackSize);
+            try (FileChannel channel = FileChannel.open(temporaryIndex,
+                    StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                MappedByteBuffer newIndex = channel.map(FileChannel.MapMode.READ_WRITE, 0, channel.size());
+                for (int slot = 0; slot < capacity; slot++) {
+                    long key = index.getLong(entryPosition(slot));
+                    if (key == 0) continue;
+                    newIndex.putLong(entryPosition(slot), key);
+                    newIndex.putLong(entryPosition(slot) + Long.BYTES,
+                            newLocations.get(index.getLong(entryPosition(slot) + Long.BYTES)));
+                }
+                newIndex.putInt(SIZE_POSITION, size);
+                newIndex.force();
+            }
+            Files.move(temporaryPack, packPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            indexChannel.close();
+            Files.move(temporaryIndex, indexPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temporaryPack);
+            Files.deleteIfExists(temporaryIndex);
+            throw e;
+        }
+        if (retiredPackChannel != null) retiredPackChannel.close();
+        retiredPackChannel = packChannel;
+        packChannel = FileChannel.open(packPath, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        mapIndex();
+        Map<ByteString, Long> oldLocationsByContent = new HashMap<>(locationsByContent);
+        locationsByContent.clear();
+        contentsByLocation.clear();
+        oldLocationsByContent.forEach((contentHash, location) -> {
+            Long newLocation = newLocations.get(location);
+            if (newLocation != null) rememberContent(contentHash, newLocation);
+        });
+        countReferences();
+        unusedBytes = 0;
+    }
+
+    /**
+     * Returns the number of tiles of the archive
+     *
+     * @return the number of tiles
+     */
+    public synchronized int size() {
+        return size;
+    }
+
+    /**
+     * Returns the number of written tiles that referenced an identical tile instead of being appended
+     *
+     * @return the number of deduplicated writes
+     */
+    public synchronized long deduplicatedWrites() {
+        return deduplicatedWrites;
+    }
+
+    /**
+     * Returns the deduplication ratio of the archive, by scanning its index
+     *
+     * @return the number of tiles divided by the number of distinct images stored in the packed file,
+     * or 1 if the archive is empty
+     */
+    public synchronized double deduplicationRatio() {
+        Set<Long> locations = new HashSet<>();
+        for (int slot = 0; slot < capacity; slot++) {
+            if (index.getLong(entryPosition(slot)) != 0)
+                locations.add(index.getLong(entryPosition(slot) + Long.BYTES));
+        }
+        return locations.isEmpty() ? 1 : (double) size / locations.size();
+    }
+
+    /**
+     * Imports all the tiles stored in a directory as zoom/x/y.png files, such as the disk cache of the tile manager
+     *
+     * @param directory containing the tiles
+     * @return the number of imported tiles
+     * @throws IOException in case of input/output error
+     */
+    public int importDirectory(Path directory) throws IOException {
+        int[] imported = {0};
+        Files.walkFileTree(directory, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attributes) throws IOException {
+                TileManager.TileId tileId = DiskTileCache.tileId(directory.relativize(file));
+                if (tileId != null && attributes.isRegularFile()) {
+                    write(tileId, Files.readAllBytes(file));
+                    imported[0]++;
+                }
+                return FileVisitResult.CONTINUE;
+            }
+        });
+        return imported[0];
+    }
+
+    /**
+     * Exports all the tiles of the archive into a directory, as zoom/x/y.png files
+     *
+     * @param directory in which the tiles are written
+     * @return the number of exported tiles
+     * @throws IOException in case of input/output error
+     */
+    public int exportDirectory(Path directory) throws IOException {
+        int exported = 0;
+        for (long key : keys()) {
+            TileManager.TileId tileId = tileId(key);
+            Path path = DiskTileCache.path(directory, tileId);
+            Files.createDirectories(path.getParent());
+            Files.write(path, read(tileId));
+            exported++;
+        }
+        return exported;
+    }
+
+    /**
+     * Writes the index to the disk and closes the archive
+     *
+     * @throws IOException in case of input/output error
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        index.force();
+        indexChannel.close();
+        packChannel.close();
+        if (retiredPackChannel != null) retiredPackChannel.close();
+    }
+
+    /**
+     * Imports a directory of tiles into an archive, or exports an archive into a directory of tiles
+     *
+     * @param args "import" or "export", the file of the archive and the directory of tiles
+     * @throws IOException in case of input/output error
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length != 3 || !(args[0].equals("import") || args[0].equals("export"))) {
+            System.err.println("usage: TileArchive import|export <archive> <tile directory>");
+            return;
+        }
+        try (TileArchive archive = new TileArchive(Path.of(args[1]))) {
+            int count = args[0].equals("import")
+                    ? archive.importDirectory(Path.of(args[2]))
+                    : archive.exportDirectory(Path.of(args[2]));
+            System.out.printf("%sed %d tiles, the archive contains %d tiles (deduplication ratio %.2f)%n",
+                    args[0], count, archive.size(), archive.deduplicationRatio());
+        }
+    }
+
+    private synchronized long[] keys() {
+        long[] keys = new long[size];
+        int count = 0;
+        for (int slot = 0; slot < capacity; slot++) {
+            long key = index.getLong(entryPosition(slot));
+            if (key != 0) keys[count++] = key;
+        }
+        return keys;
+    }
+
+    private long put(long key, long location) throws IOException {
+        int slot = slot(key);
+        long replacedLocation = NO_LOCATION;
+        if (slot < 0) {
+            if (2 * (size + 1) > capacity) grow();
+            slot = -slot(key) - 1;
+            index.putLong(entryPosition(slot), key);
+            size++;
+            index.putInt(SIZE_POSITION, size);
+        } else {
+            replacedLocation = index.getLong(entryPosition(slot) + Long.BYTES);
+        }
+        index.putLong(entryPosition(slot) + Long.BYTES, location);
+        return replacedLocation;
+    }
+
+    private int slot(long key) {
+        int mask = capacity - 1;
+        int slot = (int) ((key * HASH_MULTIPLIER) >>> (Long.SIZE - Integer.SIZE)) & mask;
+        while (true) {
+            long slotKey = index.getLong(entryPosition(slot));
+            if (slotKey == key) return slot;
+            if (slotKey == 0) return -slot - 1;
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    private void grow() throws IOException {
+        long[] keys = keys();
+        long[] locations = new long[keys.length];
+        for (int i = 0; i < keys.length; i++) {
+            locations[i] = index.getLong(entryPosition(slot(keys[i])) + Long.BYTES);
+        }
+        Path temporary = indexPath.resolveSibling(indexPath.getFileName() + TEMPORARY_SUFFIX);
+        createIndex(temporary, capacity * 2, index.getLong(PACK_SIZE_POSITION));
+        indexChannel.close();
+        Files.move(temporary, indexPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        mapIndex();
+        for (int i = 0; i < keys.length; i++) {
+            int slot = -slot(keys[i]) - 1;
+            index.putLong(entryPosition(slot), keys[i]);
+            index.putLong(entryPosition(slot) + Long.BYTES, locations[i]);
+        }
+        size = keys.length;
+        index.putInt(SIZE_POSITION, size);
+    }
+
+    private void mapIndex() throws IOException {
+        indexChannel = FileChannel.open(indexPath, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        index = indexChannel.map(FileChannel.MapMode.READ_WRITE, 0, indexChannel.size());
+        if (index.capacity() < HEADER_BYTES || index.getInt(0) != MAGIC || index.getInt(Integer.BYTES) != VERSION)
+            throw new IOException("Invalid tile archive index " + indexPath);
+        capacity = index.getInt(2 * Integer.BYTES);
+        size = index.getInt(SIZE_POSITION);
+        if (Integer.bitCount(capacity) != 1 || index.capacity() != HEADER_BYTES + (long) capacity * ENTRY_BYTES)
+            throw new IOException("Invalid tile archive index " + indexPath);
+        if (packChannel.size() < index.getLong(PACK_SIZE_POSITION))
+            throw new IOException("Tile archive index " + indexPath + " does not match the packed file " + packPath);
+    }
+
+    private void countReferences() {
+        referenceCounts.clear();
+        for (int slot = 0; slot < capacity; slot++) {
+            if (index.getLong(entryPosition(slot)) == 0) continue;
+            long location = index.getLong(entryPosition(slot) + Long.BYTES);
+            if (isShareable(location)) referenceCounts.merge(location, 1, Integer::sum);
+        }
+    }
+
+    private void rememberContent(ByteString contentHash, long location) {
+        if (locationsByContent.putIfAbsent(contentHash, location) == null) contentsByLocation.put(location, contentHash);
+    }
+
+    private void release(long location) {
+        if (isShareable(location)) {
+            Integer references = referenceCounts.get(location);
+            if (references != null && references > 1) {
+                referenceCounts.put(location, references - 1);
+                return;
+            }
+            referenceCounts.remove(location);
+            ByteString contentHash = contentsByLocation.remove(location);
+            if (contentHash != null) locationsByContent.remove(contentHash, location);
+        }
+        unusedBytes += length(location);
+    }
+
+    private static boolean isShareable(long location) {
+        return length(location) <= DEDUPLICATION_MAXIMUM_BYTES;
+    }
+
+    private static void createIndex(Path path, int capacity, long packSize) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES)
+                    .putInt(MAGIC).putInt(VERSION).putInt(capacity).putInt(0).putLong(packSize)
+                    .flip();
+            while (header.hasRemaining()) channel.write(header);
+            channel.truncate(HEADER_BYTES + (long) capacity * ENTRY_BYTES);
+            channel.write(ByteBuffer.allocate(1), HEADER_BYTES + (long) capacity * ENTRY_BYTES - 1);
+        }
+    }
+
+    private static long position(long location) {
+        return location >>> LENGTH_BITS;
+    }
+
+    private static int length(long location) {
+        return (int) (location & ((1L << LENGTH_BITS) - 1));
+    }
+
+    private static int entryPosition(int slot) {
+        return HEADER_BYTES + slot * ENTRY_BYTES;
+    }
+
+    private static long key(TileManager.TileId tileId) {
+        return KEY_MARKER | ((long) tileId.zoom() << (2 * COORDINATE_BITS))
+                | ((long) tileId.x() << COORDINATE_BITS) | tileId.y();
+    }
+
+    private static TileManager.TileId tileId(long key) {
+        int mask = (1 << COORDINATE_BITS) - 1;
+        return new TileManager.TileId((int) ((key & ~KEY_MARKER) >>> (2 * COORDINATE_BITS)),
+                (int) (key >>> COORDINATE_BITS) & mask, (int) key & mask);
+    }
+}
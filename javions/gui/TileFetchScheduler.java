@@ -0,0 +1,212 @@
+package ch.epfl.javions.gui;
+
+import ch.epfl.javions.Preconditions;
+import javafx.scene.image.Image;
+
+import java.io.IOException;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.function.Predicate;
+
+/**
+ * Schedules the fetching of tiles on background threads, in two stages. A tile is first looked up locally,
+ * for example in a disk cache, by a few threads of its own, so that the tiles available locally are never
+ * queued behind slow downloads. Only the tiles missing locally go to the second stage, which fetches them
+ * remotely on a bounded number of threads. Concurrent requests for the same tile are merged into a single
+ * fetch, and pending requests can be dropped before they start. In each stage, the visible tiles are always
+ * fetched before the prefetched ones.
+ *
+ * @author Ünlüer Asli (329696)
+ * @author Berlin Nicolas (355535)
+ */
+final class TileFetchScheduler {
+    private static final int LOCAL_FETCH_THREADS = 2;
+    private final Fetcher localFetcher;
+    private final Fetcher remoteFetcher;
+    private final BiConsumer<TileManager.TileId, Image> onFetched;
+    private final Map<Priority, LinkedHashSet<TileManager.TileId>> pendingLocalTiles = new EnumMap<>(Priority.class);
+    private final Map<Priority, LinkedHashSet<TileManager.TileId>> pendingRemoteTiles = new EnumMap<>(Priority.class);
+    private final Set<TileManager.TileId> fetchingTiles = new HashSet<>();
+    private long coalescedRequests;
+    private long droppedRequests;
+
+    /**
+     * Represents the priority of a request, the visible tiles being fetched first
+     */
+    enum Priority {VISIBLE, PREFETCH}
+
+    /**
+     * Represents a function that fetches the image of a tile
+     */
+    @FunctionalInterface
+    interface Fetcher {
+        /**
+         * Fetches the image of the given tile. The image must be available to the callers of the scheduler,
+         * for example in a memory cache, when this method returns, as the tile can be requested again from then.
+         *
+         * @param tileId of the tile
+         * @return the image of the tile, or null if a local fetcher does not have it
+         * @throws IOException in case of input/output error
+         */
+        Image fetch(TileManager.TileId tileId) throws IOException;
+    }
+
+    /**
+     * Constructs a scheduler and starts its threads
+     *
+     * @param maximumConcurrentFetches maximum number of tiles fetched remotely at the same time
+     * @param localFetcher             function that fetches the image of a tile locally, returning null
+     *                                 if the tile is not available locally
+     * @param remoteFetcher            function that fetches the image of a tile missing locally
+     * @param onFetched                action called on a background thread once a tile has been fetched,
+     *                                 with a null image if the fetch failed
+     * @throws IllegalArgumentException if the maximum number of concurrent fetches is not strictly positive
+     */
+    TileFetchScheduler(int maximumConcurrentFetches, Fetcher localFetcher, Fetcher remoteFetcher,
+                       BiConsumer<TileManager.TileId, Image> onFetched) {
+        Preconditions.checkArgument(maximumConcurrentFetches > 0);
+        this.localFetcher = Objects.requireNonNull(localFetcher);
+        this.remoteFetcher = Objects.requireNonNull(remoteFetcher);
+        this.onFetched = Objects.requireNonNull(onFetched);
+        for (Priority priority : Priority.values()) {
+            pendingLocalTiles.put(priority, new LinkedHashSet<>());
+            pendingRemoteTiles.put(priority, new LinkedHashSet<>());
+        }
+        for (int i = 0; i < LOCAL_FETCH_THREADS; i++) {
+            startThread(() -> fetchPendingTiles(pendingLocalTiles, true), "tile-reader-" + i);
+        }
+        for (int i = 0; i < maximumConcurrentFetches; i++) {
+            startThread(() -> fetchPendingTiles(pendingRemoteTiles, false), "tile-fetcher-" + i);
+        }
+    }
+
+    /**
+     * Requests the fetching of a tile, unless it is already pending or being fetched.
+     * A pending prefetch becomes visible if the tile is requested as visible.
+     *
+     * @param tileId   of the tile
+     * @param priority of the request
+     * @return true if a new fetch has been scheduled, false if the request has been merged with an existing one
+     */
+    synchronized boolean request(TileManager.TileId tileId, Priority priority) {
+        if (fetchingTiles.contains(tileId)) {
+            coalescedRequests++;
+            return false;
+        }
+        Map<Priority, LinkedHashSet<TileManager.TileId>> pendingTiles =
+                pendingRemoteTiles.get(Priority.VISIBLE).contains(tileId)
+                        || pendingRemoteTiles.get(Priority.PREFETCH).contains(tileId)
+                        ? pendingRemoteTiles
+                        : pendingLocalTiles;
+        boolean isPendingPrefetch = pendingTiles.get(Priority.PREFETCH).contains(tileId);
+        if (pendingTiles.get(Priority.VISIBLE).contains(tileId)
+                || (isPendingPrefetch && priority == Priority.PREFETCH)) {
+            coalescedRequests++;
+            return false;
+        }
+        if (isPendingPrefetch) {
+            pendingTiles.get(Priority.PREFETCH).remove(tileId);
+            coalescedRequests++;
+        }
+        pendingTiles.get(priority).add(tileId);
+        notifyAll();
+        return !isPendingPrefetch;
+    }
+
+    /**
+     * Drops the pending requests of the given priority whose tiles are no longer needed, in both stages.
+     * The tiles being fetched are not affected.
+     *
+     * @param priority of the requests
+     * @param isNeeded predicate telling if a tile is still needed
+     */
+    synchronized void retainPendingIf(Priority priority, Predicate<TileManager.TileId> isNeeded) {
+        retainPendingIf(pendingLocalTiles.get(priority), isNeeded);
+        retainPendingIf(pendingRemoteTiles.get(priority), isNeeded);
+    }
+
+    /**
+     * Returns the number of requests merged with a request already pending or being fetched
+     *
+     * @return the number of coalesced requests
+     */
+    synchronized long coalescedRequests() {
+        return coalescedRequests;
+    }
+
+    /**
+     * Returns the number of pending requests dropped before being fetched
+     *
+     * @return the number of dropped requests
+     */
+    synchronized long droppedRequests() {
+        return droppedRequests;
+    }
+
+    private void retainPendingIf(Set<TileManager.TileId> tiles, Predicate<TileManager.TileId> isNeeded) {
+        Iterator<TileManager.TileId> iterator = tiles.iterator();
+        while (iterator.hasNext()) {
+            if (!isNeeded.test(iterator.next())) {
+                iterator.remove();
+                droppedRequests++;
+            }
+        }
+    }
+
+    private static void startThread(Runnable task, String name) {
+        Thread thread = new Thread(task, name);
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private void fetchPendingTiles(Map<Priority, LinkedHashSet<TileManager.TileId>> pendingTiles, boolean local) {
+        while (true) {
+            TileManager.TileId tileId;
+            Priority priority;
+            synchronized (this) {
+                while ((priority = nextPriority(pendingTiles)) == null) {
+                    try {
+                        wait();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+                Iterator<TileManager.TileId> iterator = pendingTiles.get(priority).iterator();
+                tileId = iterator.next();
+                iterator.remove();
+                fetchingTiles.add(tileId);
+            }
+            Image image;
+            try {
+                image = (local ? localFetcher : remoteFetcher).fetch(tileId);
+            } catch (IOException | RuntimeException e) {
+                image = null;
+            }
+            if (local && image == null) {
+                synchronized (this) {
+                    fetchingTiles.remove(tileId);
+                    pendingRemoteTiles.get(priority).add(tileId);
+                    notifyAll();
+                }
+                continue;
+            }
+            onFetched.accept(tileId, image);
+            synchronized (this) {
+                fetchingTiles.remove(tileId);
+            }
+        }
+    }
+
+    private static Priority nextPriority(Map<Priority, LinkedHashSet<TileManager.TileId>> pendingTiles) {
+        for (Priority priority : Priority.values()) {
+            if (!pendingTiles.get(priority).isEmpty()) return priority;
+        }
+        return null;
+    }
+}
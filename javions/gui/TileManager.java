@@ -1,45 +1,124 @@
 package ch.epfl.javions.gui;
 
+import ch.epfl.javions.ByteString;
+import javafx.application.Platform;
 import javafx.scene.image.Image;
 
-import java.awt.*;
-import java.io.*;
-import java.net.URL;
-import java.net.URLConnection;
-import java.nio.file.Files;
+import java.io.ByteArrayInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.nio.file.Path;
-import java.util.LinkedHashMap;
-import java.util.Map;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Objects;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
 
 /**
- * Represents a manager of OSM tiles. It gets tiles from a tile server and store them in the memory cache and in the disk cache
+ * Represents a manager of OSM tiles. It gets tiles from a tile source and store them in the memory cache and in the disk cache
  *
  * @author Ünlüer Asli (329696)
  * @author Berlin Nicolas (355535)
  */
 
 public final class TileManager {
-    private static final String FORMAT = ".png";
-    private static final int CAPACITY_OF_CACHE_MEMORY = 100;
-    Path path;
-    String server;
-
-    private final LinkedHashMap<TileId, Image> cacheMemory = new LinkedHashMap<>(
-            CAPACITY_OF_CACHE_MEMORY, 0.75f, true) {
-        protected boolean removeEldestEntry(Map.Entry<TileId, Image> eldest) {
-            return size() > CAPACITY_OF_CACHE_MEMORY;
-        }
+    private static final long DEFAULT_IMAGE_BUDGET = 64L << 20;
+    private static final long DEFAULT_COMPRESSED_IMAGE_BUDGET = 32L << 20;
+    private static final long DEFAULT_DISK_BUDGET = 1L << 30;
+    private static final int MAXIMUM_CONNECTIONS_PER_SERVER = 2;
+    private static final String CONTENT_HASH_ALGORITHM = "SHA-256";
+    private final TileSource source;
+    private final TileMemoryCache cacheMemory;
+    private final TileStore cacheDisk;
+    private final TileFetchScheduler fetchScheduler;
+    private Consumer<TileId> onTileLoaded = tileId -> {
     };
 
     /**
-     * Constructs a tile manager
+     * Constructs a tile manager whose memory cache holds 64 MB of decoded images and 32 MB of compressed images,
+     * and whose disk cache holds 1 GB of tiles
      *
      * @param path   of the fold having the disk cache
-     * @param server of the tile
+     * @param server of the tile, with an optional scheme (https:// by default), for example
+     *               "tile.openstreetmap.org" or "http://localhost:8080" for a local tile server,
+     *               or the file URI of a directory of tiles
      */
     public TileManager(Path path, String server) {
-        this.path = path;
-        this.server = server;
+        this(path, server, DEFAULT_IMAGE_BUDGET, DEFAULT_COMPRESSED_IMAGE_BUDGET, DEFAULT_DISK_BUDGET);
+    }
+
+    /**
+     * Constructs a tile manager
+     *
+     * @param path                  of the fold having the disk cache
+     * @param server                of the tile, as given to TileSource.of
+     * @param imageBudget           maximum number of bytes of the decoded images of the memory cache
+     * @param compressedImageBudget maximum number of bytes of the compressed images of the memory cache
+     * @param diskBudget            maximum number of bytes of the disk cache, the least recently used
+     *                              tiles being deleted beyond it
+     * @throws IllegalArgumentException if one of the budgets is negative
+     * @throws UncheckedIOException     if an error occurs while indexing the disk cache
+     */
+    public TileManager(Path path, String server, long imageBudget, long compressedImageBudget, long diskBudget) {
+        this(new DiskTileCache(path, diskBudget), TileSource.of(server), imageBudget, compressedImageBudget);
+    }
+
+    /**
+     * Constructs a tile manager whose disk tier is the given store, for example a TileArchive
+     *
+     * @param store                 of the tiles, used as disk tier
+     * @param server                of the tile, as given to TileSource.of, or null to work offline
+     *                              with the tiles of the store only
+     * @param imageBudget           maximum number of bytes of the decoded images of the memory cache
+     * @param compressedImageBudget maximum number of bytes of the compressed images of the memory cache
+     * @throws NullPointerException     if the store is null
+     * @throws IllegalArgumentException if one of the budgets is negative
+     */
+    public TileManager(TileStore store, String server, long imageBudget, long compressedImageBudget) {
+        this(store, server == null ? null : TileSource.of(server), imageBudget, compressedImageBudget);
+    }
+
+    /**
+     * Constructs a tile manager getting the tiles missing from the store from the given source,
+     * for example an HttpTileSource with specific timeouts and retries
+     *
+     * @param store                 of the tiles, used as disk tier
+     * @param source                of the tiles missing from the store, or null to work offline
+     *                              with the tiles of the store only
+     * @param imageBudget           maximum number of bytes of the decoded images of the memory cache
+     * @param compressedImageBudget maximum number of bytes of the compressed images of the memory cache
+     * @throws NullPointerException     if the store is null
+     * @throws IllegalArgumentException if one of the budgets is negative
+     */
+    public TileManager(TileStore store, TileSource source, long imageBudget, long compressedImageBudget) {
+        this(store, source, imageBudget, compressedImageBudget, Platform::runLater);
+    }
+
+    /**
+     * Constructs a tile manager calling the action set by setOnTileLoaded through the given executor
+     * instead of the JavaFX thread, so that it can be used without the JavaFX toolkit, for example in tests
+     *
+     * @param store                 of the tiles, used as disk tier
+     * @param source                of the tiles missing from the store, or null to work offline
+     * @param imageBudget           maximum number of bytes of the decoded images of the memory cache
+     * @param compressedImageBudget maximum number of bytes of the compressed images of the memory cache
+     * @param callbackExecutor      executor running the action called when a tile has been loaded
+     * @throws NullPointerException     if the store or the executor is null
+     * @throws IllegalArgumentException if one of the budgets is negative
+     */
+    TileManager(TileStore store, TileSource source, long imageBudget, long compressedImageBudget,
+                Executor callbackExecutor) {
+        Objects.requireNonNull(callbackExecutor);
+        this.cacheDisk = Objects.requireNonNull(store);
+        this.source = source;
+        this.cacheMemory = new TileMemoryCache(imageBudget, compressedImageBudget);
+        this.fetchScheduler = new TileFetchScheduler(
+                MAXIMUM_CONNECTIONS_PER_SERVER,
+                this::loadLocalImage,
+                this::loadRemoteImage,
+                (tileId, image) -> callbackExecutor.execute(() -> tileFetched(tileId, image)));
     }
 
     /**
@@ -50,42 +129,168 @@ public final class TileManager {
      * @throws IOException in case of input/output error
      */
     public Image imageForTileAt(TileId tileId) throws IOException {
-        if (!cacheMemory.containsKey(tileId)) {
-            Path pathSpecified = path(tileId.zoom(), tileId.x(), tileId.y());
-            return downloadImageToDiskCacheOrCacheMemory(tileId, pathSpecified);
-        } else {
-            return cacheMemory.get(tileId);
+        Image image = cacheMemory.image(tileId);
+        return image == null ? loadImage(tileId) : image;
+    }
+
+    /**
+     * Returns the image of the tile if it is in the memory cache, otherwise schedules its loading
+     * from the disk cache or from the server on a background thread and returns immediately.
+     * The tiles of the disk cache are read on threads of their own, so that they are not delayed
+     * by the downloads. Repeated requests for a tile that is already loading are merged, and at most
+     * two tiles are downloaded at the same time. Must be called on the JavaFX thread.
+     *
+     * @param tileId of the tile
+     * @return the image of the tile, or null if it is not loaded yet
+     */
+    public Image loadedImageForTileAt(TileId tileId) {
+        Image image = cacheMemory.image(tileId);
+        if (image == null) fetchScheduler.request(tileId, TileFetchScheduler.Priority.VISIBLE);
+        return image;
+    }
+
+    /**
+     * Returns the image of the tile if it is in the memory cache, without scheduling its loading
+     * nor changing the statistics of the cache
+     *
+     * @param tileId of the tile
+     * @return the image of the tile, or null if it is not in the memory cache
+     */
+    public Image cachedImageForTileAt(TileId tileId) {
+        return cacheMemory.cachedImage(tileId);
+    }
+
+    /**
+     * Schedules the loading of the tile in the memory cache and in the disk cache, with a lower priority
+     * than the tiles requested by loadedImageForTileAt. Must be called on the JavaFX thread.
+     *
+     * @param tileId of the tile
+     */
+    public void prefetch(TileId tileId) {
+        if (!cacheMemory.containsImage(tileId)) fetchScheduler.request(tileId, TileFetchScheduler.Priority.PREFETCH);
+    }
+
+    /**
+     * Drops the loading requests, made by loadedImageForTileAt, of the tiles that are no longer needed,
+     * for example because they have scrolled out of view, if their loading has not started yet
+     *
+     * @param isNeeded predicate telling if a tile is still needed
+     */
+    public void retainRequestsIf(Predicate<TileId> isNeeded) {
+        fetchScheduler.retainPendingIf(TileFetchScheduler.Priority.VISIBLE, isNeeded);
+    }
+
+    /**
+     * Drops the prefetches of the tiles that are no longer needed, if their loading has not started yet
+     *
+     * @param isNeeded predicate telling if a tile is still needed
+     */
+    public void retainPrefetchesIf(Predicate<TileId> isNeeded) {
+        fetchScheduler.retainPendingIf(TileFetchScheduler.Priority.PREFETCH, isNeeded);
+    }
+
+    /**
+     * Sets the action called on the JavaFX thread when a tile requested by loadedImageForTileAt
+     * has been loaded in the memory cache
+     *
+     * @param onTileLoaded action receiving the identity of the loaded tile
+     */
+    public void setOnTileLoaded(Consumer<TileId> onTileLoaded) {
+        this.onTileLoaded = Objects.requireNonNull(onTileLoaded);
+    }
+
+    /**
+     * Returns the statistics of the memory cache
+     *
+     * @return the statistics of the memory cache
+     */
+    public CacheStatistics cacheStatistics() {
+        return cacheMemory.statistics();
+    }
+
+    private void tileFetched(TileId tileId, Image image) {
+        if (image != null) onTileLoaded.accept(tileId);
+    }
+
+    private Image loadImage(TileId tileId) throws IOException {
+        Image image = loadLocalImage(tileId);
+        return image == null ? loadRemoteImage(tileId) : image;
+    }
+
+    private Image loadLocalImage(TileId tileId) throws IOException {
+        long startTime = System.nanoTime();
+        byte[] bytes = cacheMemory.compressedImage(tileId);
+        if (bytes == null) bytes = cacheDisk.read(tileId);
+        return bytes == null ? null : decodeImage(tileId, bytes, startTime);
+    }
+
+    private Image loadRemoteImage(TileId tileId) throws IOException {
+        if (source == null) {
+            throw new FileNotFoundException("Tile not available offline: " + tileId);
         }
+        long startTime = System.nanoTime();
+        byte[] bytes = source.tileBytes(tileId);
+        Image image = decodeImage(tileId, bytes, startTime);
+        cacheDisk.write(tileId, bytes);
+        return image;
     }
 
-    private Path path(int zoom, int x, int y) {
-        return path.resolve(Integer.toString(zoom))
-                .resolve(Integer.toString(x))
-                .resolve(y + FORMAT);
-    }
-
-    private Image downloadImageToDiskCacheOrCacheMemory(TileId tileId, Path specifiedPath) throws IOException {
-
-        if (Files.exists(specifiedPath)) {
-            InputStream pathStream = new FileInputStream(specifiedPath.toFile());
-            cacheMemory.put(tileId, new Image(pathStream));
-        } else {
-            String pathString = "https://" + server + "/" +
-                    tileId.zoom() + "/" + tileId.x() + "/" + tileId.y() + FORMAT;
-            URL url = new URL(pathString);
-            URLConnection connection = url.openConnection();
-            connection.setRequestProperty("User-Agent", "Javions");
-            Files.createDirectories(specifiedPath.getParent());
-            try (InputStream inputStream = connection.getInputStream();
-                 OutputStream out = new FileOutputStream(specifiedPath.toFile())) {
-                byte[] bytes = inputStream.readAllBytes();
-                out.write(bytes);
-                ByteArrayInputStream byteArrayInputStream = new ByteArrayInputStream(bytes);
-                Image newImage = new Image(byteArrayInputStream);
-                cacheMemory.put(tileId, newImage);
-            }
+    private Image decodeImage(TileId tileId, byte[] bytes, long startTime) throws IOException {
+        ByteString contentHash = contentHash(bytes);
+        Image image = cacheMemory.imageWithContent(contentHash);
+        if (image == null) {
+            image = new Image(new ByteArrayInputStream(bytes));
+            if (image.isError()) throw new IOException(image.getException());
+        }
+        cacheMemory.put(tileId, contentHash, image, bytes);
+        cacheMemory.recordLoad(System.nanoTime() - startTime);
+        return image;
+    }
+
+    /**
+     * Computes the hash of the content of a compressed tile image, used to deduplicate identical tiles
+     *
+     * @param imageBytes compressed image of a tile
+     * @return the SHA-256 hash of the image
+     */
+    static ByteString contentHash(byte[] imageBytes) {
+        try {
+            return new ByteString(MessageDigest.getInstance(CONTENT_HASH_ALGORITHM).digest(imageBytes));
+        } catch (NoSuchAlgorithmException e) {
+            throw new Error(e);
+        }
+    }
+
+    /**
+     * Represents the statistics of the memory cache
+     *
+     * @param hits                  number of requests answered by a decoded image
+     * @param misses                number of requests whose decoded image was not in the cache
+     * @param compressedHits        number of decoded images rebuilt from a compressed image of the cache
+     * @param deduplicatedHits      number of tiles whose decoded image was shared with an identical tile
+     * @param evictions             number of decoded images evicted to respect the budget
+     * @param images                number of tiles having a decoded image
+     * @param uniqueImages          number of distinct decoded images, shared by identical tiles
+     * @param imageBytes            number of bytes of the distinct decoded images
+     * @param compressedImages      number of tiles having a compressed image
+     * @param compressedImageBytes  number of bytes of the distinct compressed images
+     * @param averageLoadTimeNs     average time taken to load a tile that was not in the cache, in nanoseconds
+     * @author Ünlüer Asli (329696)
+     * @author Berlin Nicolas (355535)
+     */
+    public record CacheStatistics(long hits, long misses, long compressedHits, long deduplicatedHits,
+                                  long evictions, int images, int uniqueImages, long imageBytes,
+                                  int compressedImages, long compressedImageBytes, long averageLoadTimeNs) {
+
+        /**
+         * Returns the deduplication ratio of the decoded images
+         *
+         * @return the number of tiles having a decoded image divided by the number of distinct decoded images,
+         * or 1 if the cache is empty
+         */
+        public double deduplicationRatio() {
+            return uniqueImages == 0 ? 1 : (double) images / uniqueImages;
         }
-        return cacheMemory.get(tileId);
     }
 
     /**
@@ -118,4 +323,3 @@ public final class TileManager {
         }
     }
 }
-
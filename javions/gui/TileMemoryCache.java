@@ -0,0 +1,228 @@
+package ch.epfl.javions.gui;
+
+import ch.epfl.javions.ByteString;
+import ch.epfl.javions.Preconditions;
+import javafx.scene.image.Image;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Represents the memory cache of the tiles, safe for use by several threads. It is made of two tiers, each
+ * bounded by a number of bytes and emptied in least recently used order: the decoded images, whose size is
+ * their number of pixels times four, and the compressed PNG images, from which a decoded image can be rebuilt
+ * without reading the disk. The tiles are deduplicated by the hash of their content: identical tiles share
+ * a single decoded image and a single compressed image, which are counted once in the budgets.
+ *
+ * @author Ünlüer Asli (329696)
+ * @author Berlin Nicolas (355535)
+ */
+final class TileMemoryCache {
+    private static final int BYTES_PER_PIXEL = 4;
+    private static final int INITIAL_CAPACITY = 256;
+
+    private final Tier<Image> images;
+    private final Tier<byte[]> compressedImages;
+    private long hits;
+    private long compressedHits;
+    private long deduplicatedHits;
+    private long misses;
+    private long loads;
+    private long loadTimeNs;
+
+    /**
+     * Constructs an empty cache
+     *
+     * @param imageBudget           maximum number of bytes of the decoded images
+     * @param compressedImageBudget maximum number of bytes of the compressed images
+     * @throws IllegalArgumentException if one of the budgets is negative
+     */
+    TileMemoryCache(long imageBudget, long compressedImageBudget) {
+        Preconditions.checkArgument(imageBudget >= 0 && compressedImageBudget >= 0);
+        this.images = new Tier<>(imageBudget);
+        this.compressedImages = new Tier<>(compressedImageBudget);
+    }
+
+    /**
+     * Returns the decoded image of the tile
+     *
+     * @param tileId of the tile
+     * @return the decoded image, or null if it is not in the cache
+     */
+    synchronized Image image(TileManager.TileId tileId) {
+        Image image = images.get(tileId);
+        if (image != null) hits++;
+        else misses++;
+        return image;
+    }
+
+    /**
+     * Returns a decoded image, of any tile, whose compressed image has the given content hash
+     *
+     * @param contentHash hash of the compressed image
+     * @return the decoded image, or null if no image with this content is in the cache
+     */
+    synchronized Image imageWithContent(ByteString contentHash) {
+        Image image = images.getContent(contentHash);
+        if (image != null) deduplicatedHits++;
+        return image;
+    }
+
+    /**
+     * Returns the decoded image of the tile, without changing the statistics
+     *
+     * @param tileId of the tile
+     * @return the decoded image, or null if it is not in the cache
+     */
+    synchronized Image cachedImage(TileManager.TileId tileId) {
+        return images.get(tileId);
+    }
+
+    /**
+     * Checks if the decoded image of the tile is in the cache, without changing the statistics
+     *
+     * @param tileId of the tile
+     * @return true if the decoded image is in the cache
+     */
+    synchronized boolean containsImage(TileManager.TileId tileId) {
+        return images.contains(tileId);
+    }
+
+    /**
+     * Returns the compressed image of the tile
+     *
+     * @param tileId of the tile
+     * @return the compressed image, or null if it is not in the cache
+     */
+    synchronized byte[] compressedImage(TileManager.TileId tileId) {
+        byte[] bytes = compressedImages.get(tileId);
+        if (bytes != null) compressedHits++;
+        return bytes;
+    }
+
+    /**
+     * Puts the decoded and the compressed image of the tile in the cache, evicting the least
+     * recently used images if a budget is exceeded
+     *
+     * @param tileId          of the tile
+     * @param contentHash     hash of the compressed image
+     * @param image           decoded image
+     * @param compressedImage compressed image
+     */
+    synchronized void put(TileManager.TileId tileId, ByteString contentHash, Image image, byte[] compressedImage) {
+        images.put(tileId, contentHash, image, byteSize(image));
+        compressedImages.put(tileId, contentHash, compressedImage, compressedImage.length);
+    }
+
+    /**
+     * Records the time taken to load a tile that was not in the cache
+     *
+     * @param durationNs time taken to load the tile, in nanoseconds
+     */
+    synchronized void recordLoad(long durationNs) {
+        loads++;
+        loadTimeNs += durationNs;
+    }
+
+    /**
+     * Returns the statistics of the cache
+     *
+     * @return the statistics of the cache
+     */
+    synchronized TileManager.CacheStatistics statistics() {
+        return new TileManager.CacheStatistics(hits, misses, compressedHits, deduplicatedHits, images.evictions,
+                images.tiles(), images.contents(), images.bytes,
+                compressedImages.tiles(), compressedImages.bytes,
+                loads == 0 ? 0 : loadTimeNs / loads);
+    }
+
+    private static long byteSize(Image image) {
+        return (long) image.getWidth() * (long) image.getHeight() * BYTES_PER_PIXEL;
+    }
+
+    /**
+     * Represents a tier of the cache, in which the tiles reference contents shared between identical tiles
+     *
+     * @param <T> type of the contents
+     */
+    private static final class Tier<T> {
+        private final long budget;
+        private final LinkedHashMap<TileManager.TileId, ByteString> tileContents = new LinkedHashMap<>(
+                INITIAL_CAPACITY, 0.75f, true);
+        private final Map<ByteString, SharedContent<T>> contents = new HashMap<>();
+        private long bytes;
+        private long evictions;
+
+        private Tier(long budget) {
+            this.budget = budget;
+        }
+
+        private T get(TileManager.TileId tileId) {
+            ByteString contentHash = tileContents.get(tileId);
+            return contentHash == null ? null : contents.get(contentHash).value;
+        }
+
+        private T getContent(ByteString contentHash) {
+            SharedContent<T> content = contents.get(contentHash);
+            return content == null ? null : content.value;
+        }
+
+        private boolean contains(TileManager.TileId tileId) {
+            return tileContents.containsKey(tileId);
+        }
+
+        private int tiles() {
+            return tileContents.size();
+        }
+
+        private int contents() {
+            return contents.size();
+        }
+
+        private void put(TileManager.TileId tileId, ByteString contentHash, T value, long valueBytes) {
+            SharedContent<T> content = contents.get(contentHash);
+            if (content == null) {
+                content = new SharedContent<>(value, valueBytes);
+                contents.put(contentHash, content);
+                bytes += valueBytes;
+            }
+            content.references++;
+            ByteString previousHash = tileContents.put(tileId, contentHash);
+            if (previousHash != null) release(previousHash);
+
+            Iterator<Map.Entry<TileManager.TileId, ByteString>> iterator = tileContents.entrySet().iterator();
+            while (bytes > budget && tileContents.size() > 1) {
+                ByteString eldestHash = iterator.next().getValue();
+                iterator.remove();
+                release(eldestHash);
+                evictions++;
+            }
+        }
+
+        private void release(ByteString contentHash) {
+            SharedContent<T> content = contents.get(contentHash);
+            if (--content.references == 0) {
+                contents.remove(contentHash);
+                bytes -= content.bytes;
+            }
+        }
+    }
+
+    /**
+     * Represents a content shared by identical tiles, with the number of tiles referencing it
+     *
+     * @param <T> type of the content
+     */
+    private static final class SharedContent<T> {
+        private final T value;
+        private final long bytes;
+        private int references;
+
+        private SharedContent(T value, long bytes) {
+            this.value = value;
+            this.bytes = bytes;
+        }
+    }
+}
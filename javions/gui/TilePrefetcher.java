@@ -0,0 +1,129 @@
+package ch.epfl.javions.gui;
+
+import ch.epfl.javions.Preconditions;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Prefetches the tiles that are likely to become visible: a ring of tiles around the visible map, extended
+ * in the direction of the movement of the map, and the tiles of the adjacent zoom levels.
+ *
+ * @author Ünlüer Asli (329696)
+ * @author Berlin Nicolas (355535)
+ */
+final class TilePrefetcher {
+    private static final double SIZE_TILE = 256;
+    private static final double LOOKAHEAD_MS = 500;
+    private static final double VELOCITY_SMOOTHING = 0.5;
+    private static final double NANOSECONDS_PER_MILLISECOND = 1e6;
+    private static final long MAXIMUM_SAMPLE_INTERVAL_NS = 250_000_000L;
+    private static final int[] ADJACENT_ZOOM_DELTAS = {1, -1};
+
+    private final TileManager tileManager;
+    private final MapParameters mapParameters;
+    private final int ringSize;
+    private final int maximumTiles;
+    private double velocityX;
+    private double velocityY;
+    private double lastMinX;
+    private double lastMinY;
+    private int lastZoom;
+    private long lastTimeNs;
+
+    /**
+     * Constructs a prefetcher
+     *
+     * @param tileManager   tile manager in which the tiles are prefetched
+     * @param mapParameters parameters of the map
+     * @param ringSize      number of tiles prefetched on each side of the visible map
+     * @param maximumTiles  maximum number of tiles prefetched at the same time
+     * @throws IllegalArgumentException if the ring size or the maximum number of tiles is negative
+     */
+    TilePrefetcher(TileManager tileManager, MapParameters mapParameters, int ringSize, int maximumTiles) {
+        Preconditions.checkArgument(ringSize >= 0 && maximumTiles >= 0);
+        this.tileManager = tileManager;
+        this.mapParameters = mapParameters;
+        this.ringSize = ringSize;
+        this.maximumTiles = maximumTiles;
+    }
+
+    /**
+     * Updates the velocity of the map and prefetches the tiles around the visible map,
+     * dropping the prefetches of the tiles that are no longer needed. Must be called on the JavaFX thread.
+     *
+     * @param width  of the visible map
+     * @param height of the visible map
+     */
+    void update(double width, double height) {
+        updateVelocity();
+        int zoom = mapParameters.getZoom();
+        double minX = mapParameters.getMinX();
+        double minY = mapParameters.getMinY();
+        double lookaheadX = velocityX * LOOKAHEAD_MS;
+        double lookaheadY = velocityY * LOOKAHEAD_MS;
+        double ring = ringSize * SIZE_TILE;
+
+        List<TileManager.TileId> tiles = tilesIn(zoom,
+                minX - ring + Math.min(lookaheadX, 0), minY - ring + Math.min(lookaheadY, 0),
+                minX + width + ring + Math.max(lookaheadX, 0), minY + height + ring + Math.max(lookaheadY, 0),
+                minX + width / 2 + lookaheadX, minY + height / 2 + lookaheadY);
+        tiles.removeIf(tileId -> isVisible(tileId, minX, minY, width, height));
+
+        for (int zoomDelta : ADJACENT_ZOOM_DELTAS) {
+            int adjacentZoom = zoom + zoomDelta;
+            if (adjacentZoom < MapParameters.MIN_VALUE_ZOOM || adjacentZoom > MapParameters.MAX_VALUE_ZOOM)
+                continue;
+            double centerX = Math.scalb(minX + width / 2, zoomDelta);
+            double centerY = Math.scalb(minY + height / 2, zoomDelta);
+            tiles.addAll(tilesIn(adjacentZoom, centerX - width / 2, centerY - height / 2,
+                    centerX + width / 2, centerY + height / 2, centerX, centerY));
+        }
+
+        List<TileManager.TileId> prefetchedTiles = tiles.subList(0, Math.min(tiles.size(), maximumTiles));
+        Set<TileManager.TileId> neededTiles = new HashSet<>(prefetchedTiles);
+        tileManager.retainPrefetchesIf(neededTiles::contains);
+        prefetchedTiles.forEach(tileManager::prefetch);
+    }
+
+    private void updateVelocity() {
+        long now = System.nanoTime();
+        double elapsedMs = (now - lastTimeNs) / NANOSECONDS_PER_MILLISECOND;
+        if (mapParameters.getZoom() != lastZoom || now - lastTimeNs > MAXIMUM_SAMPLE_INTERVAL_NS) {
+            velocityX = 0;
+            velocityY = 0;
+        } else if (elapsedMs > 0) {
+            velocityX += VELOCITY_SMOOTHING * ((mapParameters.getMinX() - lastMinX) / elapsedMs - velocityX);
+            velocityY += VELOCITY_SMOOTHING * ((mapParameters.getMinY() - lastMinY) / elapsedMs - velocityY);
+        }
+        lastMinX = mapParameters.getMinX();
+        lastMinY = mapParameters.getMinY();
+        lastZoom = mapParameters.getZoom();
+        lastTimeNs = now;
+    }
+
+    private static List<TileManager.TileId> tilesIn(int zoom, double minX, double minY, double maxX, double maxY,
+                                                    double centerX, double centerY) {
+        List<TileManager.TileId> tiles = new ArrayList<>();
+        for (int y = tileCoordinate(minY); y <= tileCoordinate(maxY); y++) {
+            for (int x = tileCoordinate(minX); x <= tileCoordinate(maxX); x++) {
+                if (TileManager.TileId.isValid(zoom, x, y)) tiles.add(new TileManager.TileId(zoom, x, y));
+            }
+        }
+        tiles.sort(Comparator.comparingDouble(tileId -> Math.hypot(
+                (tileId.x() + 0.5) * SIZE_TILE - centerX, (tileId.y() + 0.5) * SIZE_TILE - centerY)));
+        return tiles;
+    }
+
+    private static boolean isVisible(TileManager.TileId tileId, double minX, double minY, double width, double height) {
+        return tileCoordinate(minX) <= tileId.x() && tileId.x() <= tileCoordinate(minX + width)
+                && tileCoordinate(minY) <= tileId.y() && tileId.y() <= tileCoordinate(minY + height);
+    }
+
+    private static int tileCoordinate(double c) {
+        return (int) Math.floor(c / SIZE_TILE);
+    }
+}
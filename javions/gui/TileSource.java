@@ -0,0 +1,59 @@
+package ch.epfl.javions.gui;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.Path;
+import java.time.Duration;
+
+/**
+ * Represents a source of compressed tile images, for example a tile server or a directory of tiles
+ *
+ * @author Ünlüer Asli (329696)
+ * @author Berlin Nicolas (355535)
+ */
+public interface TileSource {
+
+    /**
+     * Returns the tile source at the given location, which is a directory if the location is a file URI
+     * ("file:///...") and a tile server otherwise, with an optional scheme (https:// by default), for example
+     * "tile.openstreetmap.org" or "http://localhost:8080". The tiles of an https server are loaded by an
+     * HttpTileSource with its default timeout and retries, and those of a plain http server, such as a local
+     * tile server, by a UrlConnectionTileSource, which loads them faster over plain http.
+     *
+     * @param location of the tiles
+     * @return the tile source at this location
+     */
+    static TileSource of(String location) {
+        if (location.startsWith(DirectoryTileSource.SCHEME))
+            return new DirectoryTileSource(Path.of(URI.create(location)));
+        return location.startsWith(UrlConnectionTileSource.SCHEME)
+                ? new UrlConnectionTileSource(location)
+                : new HttpTileSource(location);
+    }
+
+    /**
+     * Returns the tile source at the given location, as given to of(String), whose server requests
+     * go through an HttpTileSource using the given timeout and number of retries
+     *
+     * @param location of the tiles
+     * @param timeout  maximum duration of the connection to the server and of each request
+     * @param retries  maximum number of times a failed request is retried
+     * @return the tile source at this location
+     * @throws IllegalArgumentException if the timeout is not positive or the number of retries is negative
+     */
+    static TileSource of(String location, Duration timeout, int retries) {
+        return location.startsWith(DirectoryTileSource.SCHEME)
+                ? new DirectoryTileSource(Path.of(URI.create(location)))
+                : new HttpTileSource(location, timeout, retries);
+    }
+
+    /**
+     * Returns the compressed image of the tile
+     *
+     * @param tileId of the tile
+     * @return the compressed image of the tile
+     * @throws java.io.FileNotFoundException if the source has no image for this tile
+     * @throws IOException                   in case of input/output error
+     */
+    byte[] tileBytes(TileManager.TileId tileId) throws IOException;
+}
@@ -0,0 +1,30 @@
+package ch.epfl.javions.gui;
+
+import java.io.IOException;
+
+/**
+ * Represents a persistent store of compressed tile images, used by the tile manager as its disk tier
+ *
+ * @author Ünlüer Asli (329696)
+ * @author Berlin Nicolas (355535)
+ */
+public interface TileStore {
+
+    /**
+     * Reads the image of the tile
+     *
+     * @param tileId of the tile
+     * @return the compressed image of the tile, or null if it is not in the store
+     * @throws IOException in case of input/output error
+     */
+    byte[] read(TileManager.TileId tileId) throws IOException;
+
+    /**
+     * Writes the image of the tile in the store
+     *
+     * @param tileId     of the tile
+     * @param imageBytes compressed image of the tile
+     * @throws IOException in case of input/output error
+     */
+    void write(TileManager.TileId tileId, byte[] imageBytes) throws IOException;
+}
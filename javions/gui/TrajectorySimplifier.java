@@ -0,0 +1,225 @@
+package ch.epfl.javions.gui;
+
+import javafx.collections.ListChangeListener;
+import javafx.collections.ObservableList;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.IntConsumer;
+
+import static ch.epfl.javions.WebMercator.x;
+import static ch.epfl.javions.WebMercator.y;
+
+/**
+ * Simplifies the trajectory of an aircraft for each zoom level by pixel snapping: a position is kept only if
+ * it is at least one pixel away from the previous kept position at this zoom level, so that the number of
+ * kept positions depends on the length of the trajectory on the screen and not on the duration of the flight.
+ * The first and the last positions of the trajectory always start and end the simplified trajectory.
+ * The simplified trajectories are computed lazily, only for the zoom levels at which they are requested,
+ * and are then updated incrementally when positions are added to the end of the trajectory or removed
+ * from its start.
+ * The positions are identified by absolute indices, which are their indices in the trajectory plus the
+ * number of positions removed from its start since the construction of the simplifier.
+ *
+ * @author Ünlüer Asli (329696)
+ * @author Berlin Nicolas (355535)
+ */
+final class TrajectorySimplifier {
+    private static final double MINIMUM_PIXEL_DISTANCE = 1;
+    private static final int INITIAL_CAPACITY = 16;
+    private final ObservableList<ObservableAircraftState.AirbornePos> trajectory;
+    private final Simplification[] simplifications = new Simplification[MapParameters.MAX_VALUE_ZOOM + 1];
+    private final List<IntConsumer> listeners = new ArrayList<>();
+    private final ListChangeListener<ObservableAircraftState.AirbornePos> trajectoryListener = this::trajectoryChanged;
+    private int offset;
+
+    /**
+     * Constructs the simplifier of the trajectory of an aircraft, which follows the changes of the trajectory
+     * until it is disposed
+     *
+     * @param aircraftState state of the aircraft
+     */
+    TrajectorySimplifier(ObservableAircraftState aircraftState) {
+        this.trajectory = aircraftState.getTrajectory();
+        aircraftState.getTrajectory().addListener(trajectoryListener);
+    }
+
+    /**
+     * Stops following the changes of the trajectory, after which the simplifier must no longer be used
+     */
+    void dispose() {
+        trajectory.removeListener(trajectoryListener);
+        listeners.clear();
+    }
+
+    /**
+     * Adds a listener called after every change of the trajectory, with the absolute index of the first
+     * position that may have changed: the positions before it, which have not been removed, are unchanged
+     *
+     * @param listener called after every change of the trajectory
+     */
+    void addListener(IntConsumer listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Removes a listener added by addListener
+     *
+     * @param listener to remove
+     */
+    void removeListener(IntConsumer listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Returns the number of positions removed from the start of the trajectory, which is the absolute index
+     * of its first position
+     *
+     * @return the number of positions removed from the start of the trajectory
+     */
+    int offset() {
+        return offset;
+    }
+
+    /**
+     * Returns the number of positions of the simplified trajectory at the given zoom level
+     *
+     * @param zoom level of the map
+     * @return the number of positions of the simplified trajectory
+     */
+    int size(int zoom) {
+        Simplification simplification = simplification(zoom);
+        return simplification.size() + (hasTail(simplification) ? 1 : 0);
+    }
+
+    /**
+     * Returns the number of positions of the simplified trajectory at the given zoom level which are kept,
+     * and therefore remain in the simplified trajectory when positions are added to the trajectory
+     *
+     * @param zoom level of the map
+     * @return the number of kept positions of the simplified trajectory
+     */
+    int keptSize(int zoom) {
+        return simplification(zoom).size();
+    }
+
+    /**
+     * Returns the index, in the trajectory, of a position of the simplified trajectory at the given zoom level
+     *
+     * @param zoom  level of the map
+     * @param index of the position in the simplified trajectory
+     * @return the index of the position in the trajectory
+     */
+    int index(int zoom, int index) {
+        Simplification simplification = simplification(zoom);
+        return index < simplification.size()
+                ? simplification.kept[simplification.first + index] - offset
+                : trajectory.size() - 1;
+    }
+
+    private boolean hasTail(Simplification simplification) {
+        return simplification.size() > 0
+                && simplification.kept[simplification.end - 1] - offset < trajectory.size() - 1;
+    }
+
+    private Simplification simplification(int zoom) {
+        Simplification simplification = simplifications[zoom];
+        if (simplification == null) {
+            simplification = new Simplification(zoom);
+            simplifications[zoom] = simplification;
+        }
+        simplification.update();
+        return simplification;
+    }
+
+    private void trajectoryChanged(ListChangeListener.Change<? extends ObservableAircraftState.AirbornePos> change) {
+        int removedFromStart = 0;
+        int firstChanged = Integer.MAX_VALUE;
+        while (change.next()) {
+            if (change.getFrom() == 0 && change.wasRemoved() && !change.wasAdded()) {
+                removedFromStart += change.getRemovedSize();
+            } else {
+                firstChanged = Math.min(firstChanged, change.getFrom());
+            }
+        }
+        offset += removedFromStart;
+        firstChanged = firstChanged == Integer.MAX_VALUE ? offset + trajectory.size() : offset + firstChanged;
+        for (Simplification simplification : simplifications) {
+            if (simplification != null) {
+                if (removedFromStart > 0) simplification.removeStart();
+                simplification.truncate(firstChanged);
+            }
+        }
+        for (IntConsumer listener : List.copyOf(listeners)) listener.accept(firstChanged);
+    }
+
+    private final class Simplification {
+        private final int zoom;
+        private int[] kept = new int[INITIAL_CAPACITY];
+        private int first;
+        private int end;
+        private int processed;
+        private double lastX;
+        private double lastY;
+
+        private Simplification(int zoom) {
+            this.zoom = zoom;
+            this.processed = offset;
+        }
+
+        private int size() {
+            return end - first;
+        }
+
+        private void update() {
+            for (; processed < offset + trajectory.size(); processed++) {
+                ObservableAircraftState.AirbornePos position = trajectory.get(processed - offset);
+                double x = x(zoom, position.position().longitude());
+                double y = y(zoom, position.position().latitude());
+                if (end == first || Math.hypot(x - lastX, y - lastY) >= MINIMUM_PIXEL_DISTANCE) {
+                    append(processed);
+                    lastX = x;
+                    lastY = y;
+                }
+            }
+        }
+
+        private void append(int index) {
+            if (end == kept.length) {
+                int[] newKept = size() < kept.length / 2 ? kept : new int[2 * kept.length];
+                System.arraycopy(kept, first, newKept, 0, size());
+                end -= first;
+                first = 0;
+                kept = newKept;
+            }
+            kept[end++] = index;
+        }
+
+        private void removeStart() {
+            boolean removed = false;
+            while (first < end && kept[first] < offset) {
+                first++;
+                removed = true;
+            }
+            processed = Math.max(processed, offset);
+            if (removed && offset < processed && (first == end || kept[first] != offset)) {
+                kept[--first] = offset;
+                if (size() == 1) updateLast();
+            }
+        }
+
+        private void truncate(int firstChanged) {
+            if (processed <= firstChanged) return;
+            processed = firstChanged;
+            while (end > first && kept[end - 1] >= firstChanged) end--;
+            if (end > first) updateLast();
+        }
+
+        private void updateLast() {
+            ObservableAircraftState.AirbornePos position = trajectory.get(kept[end - 1] - offset);
+            lastX = x(zoom, position.position().longitude());
+            lastY = y(zoom, position.position().latitude());
+        }
+    }
+}
@@ -0,0 +1,181 @@
+package ch.epfl.javions.gui;
+
+import ch.epfl.javions.GeoPos;
+import ch.epfl.javions.Preconditions;
+import javafx.collections.ObservableListBase;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Represents the trajectory of an aircraft, stored in primitive ring buffers: the longitude and the latitude
+ * in T32 units, the altitude as a float and the time stamp of every position. The buffers grow as positions
+ * are added, up to a maximum number of positions beyond which older positions are evicted according to the
+ * eviction policy. The trajectory is seen as an unmodifiable observable list of airborne positions, created
+ * on demand, whose changes are notified as the changes of any observable list.
+ *
+ * @author Ünlüer Asli (329696)
+ * @author Berlin Nicolas (355535)
+ */
+final class TrajectoryStore extends ObservableListBase<ObservableAircraftState.AirbornePos> {
+    private static final int INITIAL_CAPACITY = 16;
+    private static final int BYTES_PER_POSITION = 2 * Integer.BYTES + Float.BYTES + Long.BYTES;
+    private final int maximumSize;
+    private final ObservableAircraftState.TrajectoryEviction eviction;
+    private int[] longitudesT32;
+    private int[] latitudesT32;
+    private float[] altitudes;
+    private long[] timeStampsNs;
+    private int start;
+    private int size;
+
+    /**
+     * Constructs an empty trajectory
+     *
+     * @param maximumSize maximum number of positions of the trajectory
+     * @param eviction    policy applied when a position is added to a full trajectory
+     * @throws IllegalArgumentException if the maximum number of positions is smaller than 2
+     * @throws NullPointerException     if the eviction policy is null
+     */
+    TrajectoryStore(int maximumSize, ObservableAircraftState.TrajectoryEviction eviction) {
+        Preconditions.checkArgument(maximumSize >= 2);
+        this.maximumSize = maximumSize;
+        this.eviction = Objects.requireNonNull(eviction);
+        allocate(Math.min(INITIAL_CAPACITY, maximumSize));
+    }
+
+    @Override
+    public ObservableAircraftState.AirbornePos get(int index) {
+        Objects.checkIndex(index, size);
+        int slot = slot(index);
+        return new ObservableAircraftState.AirbornePos(
+                new GeoPos(longitudesT32[slot], latitudesT32[slot]), altitudes[slot]);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the time stamp of the message giving a position of the trajectory
+     *
+     * @param index of the position
+     * @return the time stamp of the message, in nanoseconds
+     * @throws IndexOutOfBoundsException if the index is not the index of a position
+     */
+    long timeStampNs(int index) {
+        Objects.checkIndex(index, size);
+        return timeStampsNs[slot(index)];
+    }
+
+    /**
+     * Returns the number of bytes used by the buffers of the trajectory
+     *
+     * @return the number of bytes used by the buffers of the trajectory
+     */
+    long bytes() {
+        return (long) longitudesT32.length * BYTES_PER_POSITION;
+    }
+
+    /**
+     * Adds a position at the end of the trajectory, evicting older positions if the trajectory is full.
+     * A trajectory too small to be decimated evicts its oldest position instead.
+     *
+     * @param position    of the aircraft
+     * @param altitude    of the aircraft
+     * @param timeStampNs time stamp of the message giving the position
+     */
+    void add(GeoPos position, double altitude, long timeStampNs) {
+        beginChange();
+        if (size == maximumSize) {
+            if (eviction == ObservableAircraftState.TrajectoryEviction.DECIMATE) decimate();
+            if (size == maximumSize) dropOldest();
+        } else if (size == longitudesT32.length) {
+            grow();
+        }
+        set(slot(size), position, altitude, timeStampNs);
+        size++;
+        nextAdd(size - 1, size);
+        endChange();
+    }
+
+    /**
+     * Replaces the last position of the trajectory
+     *
+     * @param position    of the aircraft
+     * @param altitude    of the aircraft
+     * @throws IndexOutOfBoundsException if the trajectory is empty
+     */
+    void replaceLast(GeoPos position, double altitude) {
+        ObservableAircraftState.AirbornePos replaced = get(size - 1);
+        int slot = slot(size - 1);
+        set(slot, position, altitude, timeStampsNs[slot]);
+        beginChange();
+        nextSet(size - 1, replaced);
+        endChange();
+    }
+
+    private void dropOldest() {
+        ObservableAircraftState.AirbornePos removed = get(0);
+        start = slot(1);
+        size--;
+        nextRemove(0, removed);
+    }
+
+    private void decimate() {
+        // below 4 positions, the older half has no second position to remove
+        if (size < 4) return;
+        List<ObservableAircraftState.AirbornePos> removed = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) removed.add(get(i));
+        int olderHalf = size / 2;
+        int newSize = 0;
+        for (int i = 0; i < size; i++) {
+            if (i >= olderHalf || i % 2 == 0) {
+                int from = slot(i);
+                int to = slot(newSize++);
+                set(to, new GeoPos(longitudesT32[from], latitudesT32[from]), altitudes[from], timeStampsNs[from]);
+            }
+        }
+        size = newSize;
+        nextReplace(0, size, removed);
+    }
+
+    private void grow() {
+        int capacity = Math.min(2 * longitudesT32.length, maximumSize);
+        int[] oldLongitudes = longitudesT32;
+        int[] oldLatitudes = latitudesT32;
+        float[] oldAltitudes = altitudes;
+        long[] oldTimeStamps = timeStampsNs;
+        int oldStart = start;
+        allocate(capacity);
+        for (int i = 0; i < size; i++) {
+            int from = (oldStart + i) % oldLongitudes.length;
+            longitudesT32[i] = oldLongitudes[from];
+            latitudesT32[i] = oldLatitudes[from];
+            altitudes[i] = oldAltitudes[from];
+            timeStampsNs[i] = oldTimeStamps[from];
+        }
+    }
+
+    private void allocate(int capacity) {
+        longitudesT32 = new int[capacity];
+        latitudesT32 = new int[capacity];
+        altitudes = new float[capacity];
+        timeStampsNs = new long[capacity];
+        start = 0;
+    }
+
+    private void set(int slot, GeoPos position, double altitude, long timeStampNs) {
+        longitudesT32[slot] = position.longitudeT32();
+        latitudesT32[slot] = position.latitudeT32();
+        altitudes[slot] = (float) altitude;
+        timeStampsNs[slot] = timeStampNs;
+    }
+
+    private int slot(int index) {
+        int slot = start + index;
+        return slot < longitudesT32.length ? slot : slot - longitudesT32.length;
+    }
+}
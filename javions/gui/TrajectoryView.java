@@ -0,0 +1,227 @@
+package ch.epfl.javions.gui;
+
+import javafx.beans.InvalidationListener;
+import javafx.scene.Group;
+import javafx.scene.Node;
+import javafx.scene.paint.Color;
+import javafx.scene.paint.LinearGradient;
+import javafx.scene.paint.Paint;
+import javafx.scene.paint.Stop;
+import javafx.scene.shape.Line;
+import javafx.scene.shape.Polyline;
+import javafx.scene.shape.Shape;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.IntConsumer;
+
+import static ch.epfl.javions.WebMercator.x;
+import static ch.epfl.javions.WebMercator.y;
+import static javafx.scene.paint.CycleMethod.NO_CYCLE;
+
+/**
+ * Manages the nodes of the trajectory of an aircraft, drawn from its trajectory simplified for the current
+ * zoom level. The positions added at the end of the trajectory only add their segments, the positions removed
+ * from its start only move or remove its first segment, and the nodes are rebuilt only when the zoom level
+ * changes or when the trajectory changes otherwise. Consecutive segments
+ * flown at the same altitude, which have the same color, are merged into a single polyline, and the colors
+ * are taken from the precomputed colors of the altitude color ramp.
+ *
+ * @author Ünlüer Asli (329696)
+ * @author Berlin Nicolas (355535)
+ */
+final class TrajectoryView {
+    private static final int INITIAL_CAPACITY = 16;
+    private final Group group;
+    private final ObservableAircraftState aircraftState;
+    private final MapParameters mapParameters;
+    private final IntConsumer trajectoryListener = this::trajectoryChanged;
+    private final InvalidationListener zoomListener = observable -> rebuild();
+    private TrajectorySimplifier simplifier;
+    private int[] drawnIndices = new int[INITIAL_CAPACITY];
+    private Polyline currentRun;
+    private int drawnPoints;
+    private int drawnKeptPoints;
+    private int zoom;
+    private double lastX;
+    private double lastY;
+    private double lastAltitude;
+    private double firstAltitude;
+    private boolean shown;
+
+    /**
+     * Constructs the view of the trajectory of an aircraft, initially hidden
+     *
+     * @param group         in which the nodes of the trajectory are placed
+     * @param aircraftState state of the aircraft
+     * @param mapParameters parameters of the map
+     */
+    TrajectoryView(Group group, ObservableAircraftState aircraftState, MapParameters mapParameters) {
+        this.group = group;
+        this.aircraftState = aircraftState;
+        this.mapParameters = mapParameters;
+    }
+
+    /**
+     * Builds the nodes of the trajectory and follows its changes and the changes of the zoom level.
+     * The simplifications of the trajectory are computed from the first call, and then kept up to date.
+     * Does nothing if the trajectory is already shown.
+     */
+    void show() {
+        if (shown) return;
+        shown = true;
+        if (simplifier == null) simplifier = new TrajectorySimplifier(aircraftState);
+        simplifier.addListener(trajectoryListener);
+        mapParameters.zoomProperty().addListener(zoomListener);
+        rebuild();
+    }
+
+    /**
+     * Removes the nodes of the trajectory and stops following its changes, if it is shown
+     */
+    void hide() {
+        if (!shown) return;
+        shown = false;
+        simplifier.removeListener(trajectoryListener);
+        mapParameters.zoomProperty().removeListener(zoomListener);
+        clear();
+    }
+
+    /**
+     * Hides the trajectory and releases the listener registered on it by the simplifier, which is
+     * created again if the trajectory is shown later
+     */
+    void dispose() {
+        hide();
+        if (simplifier != null) simplifier.dispose();
+        simplifier = null;
+    }
+
+    private void trajectoryChanged(int firstChanged) {
+        if (drawnPoints > 0 && drawnIndices[0] < simplifier.offset() && !startChanged()) {
+            rebuild();
+        } else if (drawnPoints > 0 && drawnIndices[0] >= firstChanged) {
+            clear();
+        } else {
+            while (drawnPoints > 0 && (drawnPoints > drawnKeptPoints || drawnIndices[drawnPoints - 1] >= firstChanged)) {
+                removeLastPoint();
+            }
+            if (drawnPoints > 0) {
+                ObservableAircraftState.AirbornePos position =
+                        aircraftState.getTrajectory().get(drawnIndices[drawnPoints - 1] - simplifier.offset());
+                lastX = x(zoom, position.position().longitude());
+                lastY = y(zoom, position.position().latitude());
+                lastAltitude = position.altitude();
+            }
+        }
+        append();
+    }
+
+    private void rebuild() {
+        clear();
+        zoom = mapParameters.getZoom();
+        append();
+    }
+
+    private void clear() {
+        group.getChildren().clear();
+        currentRun = null;
+        drawnPoints = 0;
+        drawnKeptPoints = 0;
+    }
+
+    private void append() {
+        List<ObservableAircraftState.AirbornePos> trajectory = aircraftState.getTrajectory();
+        int size = simplifier.size(zoom);
+        if (drawnIndices.length < size) drawnIndices = Arrays.copyOf(drawnIndices, Math.max(size, 2 * drawnIndices.length));
+        for (; drawnPoints < size; drawnPoints++) {
+            int index = simplifier.index(zoom, drawnPoints);
+            ObservableAircraftState.AirbornePos position = trajectory.get(index);
+            double x = x(zoom, position.position().longitude());
+            double y = y(zoom, position.position().latitude());
+            if (drawnPoints > 0) addSegment(x, y, position.altitude());
+            else firstAltitude = position.altitude();
+            drawnIndices[drawnPoints] = index + simplifier.offset();
+            lastX = x;
+            lastY = y;
+            lastAltitude = position.altitude();
+        }
+        drawnKeptPoints = simplifier.keptSize(zoom);
+    }
+
+    private void addSegment(double x, double y, double altitude) {
+        if (lastAltitude != altitude) {
+            group.getChildren().add(stroked(new Line(lastX, lastY, x, y), gradient(lastAltitude, altitude)));
+            currentRun = null;
+        } else if (currentRun != null && currentRun.getStroke().equals(color(altitude))) {
+            currentRun.getPoints().addAll(x, y);
+        } else {
+            currentRun = stroked(new Polyline(lastX, lastY, x, y), color(altitude));
+            group.getChildren().add(currentRun);
+        }
+    }
+
+    private boolean startChanged() {
+        if (drawnKeptPoints < 2 || simplifier.keptSize(zoom) < 2) return false;
+        int offset = simplifier.offset();
+        int newFirst = simplifier.index(zoom, 0) + offset;
+        List<Node> nodes = group.getChildren();
+        if (newFirst == drawnIndices[1]) {
+            if (nodes.get(0) instanceof Polyline polyline && polyline.getPoints().size() > 4) {
+                polyline.getPoints().remove(0, 2);
+            } else {
+                if (nodes.get(0) == currentRun) currentRun = null;
+                nodes.remove(0);
+            }
+            System.arraycopy(drawnIndices, 1, drawnIndices, 0, drawnPoints - 1);
+            drawnPoints--;
+            drawnKeptPoints--;
+            firstAltitude = aircraftState.getTrajectory().get(newFirst - offset).altitude();
+            return true;
+        }
+        ObservableAircraftState.AirbornePos position = aircraftState.getTrajectory().get(newFirst - offset);
+        if (simplifier.index(zoom, 1) + offset != drawnIndices[1] || position.altitude() != firstAltitude) {
+            return false;
+        }
+        double x = x(zoom, position.position().longitude());
+        double y = y(zoom, position.position().latitude());
+        if (nodes.get(0) instanceof Polyline polyline) {
+            polyline.getPoints().set(0, x);
+            polyline.getPoints().set(1, y);
+        } else if (nodes.get(0) instanceof Line line) {
+            line.setStartX(x);
+            line.setStartY(y);
+        }
+        drawnIndices[0] = newFirst;
+        return true;
+    }
+
+    private void removeLastPoint() {
+        drawnPoints--;
+        drawnKeptPoints = Math.min(drawnKeptPoints, drawnPoints);
+        if (drawnPoints == 0) return;
+        List<Node> nodes = group.getChildren();
+        if (currentRun != null && currentRun.getPoints().size() > 4) {
+            currentRun.getPoints().remove(currentRun.getPoints().size() - 2, currentRun.getPoints().size());
+        } else {
+            nodes.remove(nodes.size() - 1);
+            currentRun = !nodes.isEmpty() && nodes.get(nodes.size() - 1) instanceof Polyline polyline
+                    ? polyline
+                    : null;
+        }
+    }
+
+    private static <T extends Shape> T stroked(T shape, Paint paint) {
+        shape.setStroke(paint);
+        return shape;
+    }
+
+    private static Color color(double altitude) {
+        return AircraftController.getColorForCalculatedAltitude(altitude);
+    }
+
+    private Paint gradient(double altitude, double nextAltitude) {
+        return new LinearGradient(0, 0, 1, 0, true, NO_CYCLE,
+                new Stop(0, color(altitude)), new Stop(1, color(nextAltitude)));
+    }
+}
@@ -0,0 +1,43 @@
+package ch.epfl.javions.gui;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.URLConnection;
+
+/**
+ * Represents a tile server whose tiles are loaded by a URLConnection per tile, the connections being kept
+ * alive and reused by the JDK between the tiles. This is the default source of the tiles of a plain http server,
+ * for example a local tile server, for which it is faster than an HttpTileSource.
+ *
+ * @author Ünlüer Asli (329696)
+ * @author Berlin Nicolas (355535)
+ */
+public final class UrlConnectionTileSource implements TileSource {
+    static final String SCHEME = "http://";
+    private static final String FORMAT = ".png";
+    private static final String DEFAULT_SCHEME = "https://";
+    private static final String SCHEME_SEPARATOR = "://";
+    private static final String USER_AGENT = "Javions";
+    private final String server;
+
+    /**
+     * Constructs the source of the tiles of a server
+     *
+     * @param server of the tiles, with an optional scheme (https:// by default), for example
+     *               "tile.openstreetmap.org" or "http://localhost:8080"
+     */
+    public UrlConnectionTileSource(String server) {
+        this.server = server.contains(SCHEME_SEPARATOR) ? server : DEFAULT_SCHEME + server;
+    }
+
+    @Override
+    public byte[] tileBytes(TileManager.TileId tileId) throws IOException {
+        URLConnection connection = URI.create(server + "/"
+                + tileId.zoom() + "/" + tileId.x() + "/" + tileId.y() + FORMAT).toURL().openConnection();
+        connection.setRequestProperty("User-Agent", USER_AGENT);
+        try (InputStream inputStream = connection.getInputStream()) {
+            return inputStream.readAllBytes();
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package ch.epfl.javions.aircraft;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Writes small aircraft databases in the zip format of the mictronics database, one CSV file per shard
+ * named after the last two characters of the addresses, for the tests of the aircraft databases
+ *
+ * @author Ünlüer Asli (329696)
+ * @author Berlin Nicolas (355535)
+ */
+final class AircraftTestDatabase {
+    static final List<String> LINES = List.of(
+            "39E40A,F-HZUR,AS50,AÉROSPATIALE AS-350 ÉCUREUIL,H1T,L",
+            "3C6444,D-AIBA,A319,AIRBUS A-319-112,L2J,M",
+            "4B1805,HB-JCA,BCS3,AIRBUS A220-300,L2J,M",
+            "4B1900,HB-ZZZ,,,,",
+            "4B1A05,HB-JMA,A343,AIRBUS A340-313,L4J,H",
+            "AC82EC,N911AB,C172,CESSNA 172 Skyhawk,L1P,L");
+    static final IcaoAddress ABSENT_ADDRESS_OF_PRESENT_SHARD = new IcaoAddress("4B1705");
+    static final IcaoAddress ABSENT_ADDRESS_OF_ABSENT_SHARD = new IcaoAddress("4B1806");
+    private static final int ADDRESS_LENGTH = 6;
+    private static final int SHARD_NAME_LENGTH = 2;
+
+    private AircraftTestDatabase() {
+    }
+
+    /**
+     * Writes a database of the given lines in a zip file of the given directory
+     *
+     * @param directory in which the zip file is written
+     * @param lines     of the database, sorted by address
+     * @return the name of the zip file
+     * @throws IOException if an error occurs while writing the file
+     */
+    static String write(Path directory, List<String> lines) throws IOException {
+        Map<String, List<String>> shards = lines.stream().collect(Collectors.groupingBy(
+                line -> line.substring(ADDRESS_LENGTH - SHARD_NAME_LENGTH, ADDRESS_LENGTH),
+                TreeMap::new,
+                Collectors.toList()));
+        Path file = Files.createTempFile(directory, "aircraft", ".zip");
+        try (OutputStream stream = Files.newOutputStream(file);
+             ZipOutputStream zip = new ZipOutputStream(stream)) {
+            for (Map.Entry<String, List<String>> shard : shards.entrySet()) {
+                zip.putNextEntry(new ZipEntry(shard.getKey() + AircraftCsv.FORMAT));
+                zip.write((String.join("\n", shard.getValue()) + "\n").getBytes(StandardCharsets.UTF_8));
+                zip.closeEntry();
+            }
+        }
+        return file.toString();
+    }
+
+    /**
+     * Returns the address of the aircraft of the given line
+     *
+     * @param line of the database
+     * @return the address of the aircraft
+     */
+    static IcaoAddress address(String line) {
+        return new IcaoAddress(AircraftCsv.fields(line)[AircraftCsv.ICAO_ADDRESS_INDEX]);
+    }
+
+    /**
+     * Returns the information about the aircraft of the given line
+     *
+     * @param line of the database
+     * @return the information about the aircraft
+     */
+    static AircraftData data(String line) {
+        return AircraftCsv.data(AircraftCsv.fields(line));
+    }
+}
@@ -0,0 +1,92 @@
+package ch.epfl.javions.aircraft;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class IcaoAddressBitmapTest {
+    private static final String BITMAP_FILE = "aircraft.bitmap";
+
+    @TempDir
+    Path directory;
+
+    private static void assertContainsExactlyTheAddressesOf(List<String> lines, IcaoAddressBitmap bitmap) {
+        assertEquals(lines.size(), bitmap.count());
+        for (String line : lines) assertTrue(bitmap.contains(AircraftTestDatabase.address(line)));
+        assertFalse(bitmap.contains(AircraftTestDatabase.ABSENT_ADDRESS_OF_PRESENT_SHARD));
+        assertFalse(bitmap.contains(AircraftTestDatabase.ABSENT_ADDRESS_OF_ABSENT_SHARD));
+    }
+
+    private Set<Path> files() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.collect(Collectors.toSet());
+        }
+    }
+
+    @Test
+    void icaoAddressBitmapContainsExactlyTheAddressesOfTheDatabase() throws Exception {
+        String zipFileName = AircraftTestDatabase.write(directory, AircraftTestDatabase.LINES);
+        assertContainsExactlyTheAddressesOf(AircraftTestDatabase.LINES, IcaoAddressBitmap.of(zipFileName));
+    }
+
+    @Test
+    void icaoAddressBitmapReadsBackItsFileWithoutRewritingIt() throws Exception {
+        String zipFileName = AircraftTestDatabase.write(directory, AircraftTestDatabase.LINES);
+        Path file = directory.resolve(BITMAP_FILE);
+        IcaoAddressBitmap.load(zipFileName, file);
+        FileTime writingTime = FileTime.fromMillis(0);
+        Files.setLastModifiedTime(file, writingTime);
+
+        assertContainsExactlyTheAddressesOf(AircraftTestDatabase.LINES, IcaoAddressBitmap.load(zipFileName, file));
+        assertEquals(writingTime, Files.getLastModifiedTime(file));
+        assertEquals(Set.of(Path.of(zipFileName), file), files());
+    }
+
+    @Test
+    void icaoAddressBitmapRebuildsTheFileOfAnotherDatabase() throws Exception {
+        Path file = directory.resolve(BITMAP_FILE);
+        List<String> oldLines = AircraftTestDatabase.LINES.subList(0, 2);
+        IcaoAddressBitmap.load(AircraftTestDatabase.write(directory, oldLines), file);
+
+        String zipFileName = AircraftTestDatabase.write(directory, AircraftTestDatabase.LINES);
+        assertContainsExactlyTheAddressesOf(AircraftTestDatabase.LINES, IcaoAddressBitmap.load(zipFileName, file));
+        assertContainsExactlyTheAddressesOf(AircraftTestDatabase.LINES, IcaoAddressBitmap.load(zipFileName, file));
+    }
+
+    @Test
+    void icaoAddressBitmapRebuildsATruncatedFile() throws Exception {
+        String zipFileName = AircraftTestDatabase.write(directory, AircraftTestDatabase.LINES);
+        Path file = directory.resolve(BITMAP_FILE);
+        IcaoAddressBitmap.load(zipFileName, file);
+        long size = Files.size(file);
+        Files.write(file, new byte[(int) size / 2]);
+
+        assertContainsExactlyTheAddressesOf(AircraftTestDatabase.LINES, IcaoAddressBitmap.load(zipFileName, file));
+        assertEquals(size, Files.size(file));
+    }
+
+    @Test
+    void icaoAddressBitmapLeavesNoTemporaryFileWhenItsWritingFails() throws Exception {
+        String zipFileName = AircraftTestDatabase.write(directory, AircraftTestDatabase.LINES);
+        Path file = directory.resolve(BITMAP_FILE);
+        Files.createDirectory(file);
+        Path blockingFile = Files.createFile(file.resolve(BITMAP_FILE));
+
+        assertThrows(IOException.class, () -> IcaoAddressBitmap.of(zipFileName).write(file));
+        assertEquals(Set.of(Path.of(zipFileName), file), files());
+        assertTrue(Files.exists(blockingFile));
+    }
+}
@@ -0,0 +1,53 @@
+package ch.epfl.javions.aircraft;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class IndexedAircraftDatabaseTest {
+    @TempDir
+    Path directory;
+
+    @Test
+    void indexedAircraftDatabaseAgreesWithTheOriginalDatabase() throws Exception {
+        String zipFileName = AircraftTestDatabase.write(directory, AircraftTestDatabase.LINES);
+        IndexedAircraftDatabase database = new IndexedAircraftDatabase(zipFileName);
+        AircraftDatabase originalDatabase = new AircraftDatabase(zipFileName);
+        assertEquals(AircraftTestDatabase.LINES.size(), database.size());
+        for (String line : AircraftTestDatabase.LINES) {
+            IcaoAddress address = AircraftTestDatabase.address(line);
+            assertEquals(AircraftTestDatabase.data(line), database.get(address));
+            assertEquals(originalDatabase.get(address), database.get(address));
+        }
+    }
+
+    @Test
+    void indexedAircraftDatabaseReturnsNullForAbsentAddresses() throws Exception {
+        String zipFileName = AircraftTestDatabase.write(directory, AircraftTestDatabase.LINES);
+        IndexedAircraftDatabase database = new IndexedAircraftDatabase(zipFileName);
+        assertNull(database.get(AircraftTestDatabase.ABSENT_ADDRESS_OF_PRESENT_SHARD));
+        assertNull(database.get(AircraftTestDatabase.ABSENT_ADDRESS_OF_ABSENT_SHARD));
+    }
+
+    @Test
+    void indexedAircraftDatabaseLoadsAnEmptyDatabase() throws Exception {
+        IndexedAircraftDatabase database = new IndexedAircraftDatabase(
+                AircraftTestDatabase.write(directory, List.of()));
+        assertEquals(0, database.size());
+        assertNull(database.get(AircraftTestDatabase.address(AircraftTestDatabase.LINES.get(0))));
+    }
+
+    @Test
+    void indexedAircraftDatabaseRejectsAMissingFile() {
+        assertThrows(NullPointerException.class, () -> new IndexedAircraftDatabase(null));
+        assertThrows(IOException.class,
+                () -> new IndexedAircraftDatabase(directory.resolve("missing.zip").toString()));
+    }
+}
@@ -0,0 +1,84 @@
+package ch.epfl.javions.aircraft;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MappedAircraftDatabaseTest {
+    private static final String COMPILED_DATABASE = "aircraft.bin";
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void mappedAircraftDatabaseReadsBackTheCompiledDatabase() throws Exception {
+        String zipFileName = AircraftTestDatabase.write(directory, AircraftTestDatabase.LINES);
+        MappedAircraftDatabase database = MappedAircraftDatabase.open(zipFileName,
+                directory.resolve(COMPILED_DATABASE));
+        assertEquals(AircraftTestDatabase.LINES.size(), database.size());
+        for (String line : AircraftTestDatabase.LINES) {
+            assertEquals(AircraftTestDatabase.data(line), database.get(AircraftTestDatabase.address(line)));
+        }
+        assertNull(database.get(AircraftTestDatabase.ABSENT_ADDRESS_OF_PRESENT_SHARD));
+        assertNull(database.get(AircraftTestDatabase.ABSENT_ADDRESS_OF_ABSENT_SHARD));
+    }
+
+    @Test
+    void mappedAircraftDatabaseDoesNotRecompileAnUpToDateFile() throws Exception {
+        String zipFileName = AircraftTestDatabase.write(directory, AircraftTestDatabase.LINES);
+        Path file = directory.resolve(COMPILED_DATABASE);
+        MappedAircraftDatabase.open(zipFileName, file);
+        FileTime compilationTime = FileTime.fromMillis(0);
+        Files.setLastModifiedTime(file, compilationTime);
+
+        assertTrue(AircraftDatabaseCompiler.isUpToDate(zipFileName, file));
+        MappedAircraftDatabase.open(zipFileName, file);
+        assertEquals(compilationTime, Files.getLastModifiedTime(file));
+    }
+
+    @Test
+    void mappedAircraftDatabaseRecompilesAFileOfAnotherDatabase() throws Exception {
+        Path file = directory.resolve(COMPILED_DATABASE);
+        String oldZipFileName = AircraftTestDatabase.write(directory, AircraftTestDatabase.LINES.subList(0, 2));
+        assertEquals(2, MappedAircraftDatabase.open(oldZipFileName, file).size());
+
+        String zipFileName = AircraftTestDatabase.write(directory, AircraftTestDatabase.LINES);
+        assertFalse(AircraftDatabaseCompiler.isUpToDate(zipFileName, file));
+        MappedAircraftDatabase database = MappedAircraftDatabase.open(zipFileName, file);
+        assertEquals(AircraftTestDatabase.LINES.size(), database.size());
+        String lastLine = AircraftTestDatabase.LINES.get(AircraftTestDatabase.LINES.size() - 1);
+        assertEquals(AircraftTestDatabase.data(lastLine), database.get(AircraftTestDatabase.address(lastLine)));
+    }
+
+    @Test
+    void mappedAircraftDatabaseRejectsATruncatedFile() throws Exception {
+        String zipFileName = AircraftTestDatabase.write(directory, AircraftTestDatabase.LINES);
+        Path file = directory.resolve(COMPILED_DATABASE);
+        AircraftDatabaseCompiler.compile(zipFileName, file);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - 1);
+        }
+        assertThrows(IOException.class, () -> new MappedAircraftDatabase(file));
+        assertFalse(AircraftDatabaseCompiler.isUpToDate(zipFileName, file));
+        assertEquals(AircraftTestDatabase.LINES.size(), MappedAircraftDatabase.open(zipFileName, file).size());
+    }
+
+    @Test
+    void mappedAircraftDatabaseRejectsAFileOfAnotherFormat() throws Exception {
+        Path file = directory.resolve(COMPILED_DATABASE);
+        Files.write(file, new byte[1024]);
+        assertThrows(IOException.class, () -> new MappedAircraftDatabase(file));
+    }
+}
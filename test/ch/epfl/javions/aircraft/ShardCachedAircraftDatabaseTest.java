@@ -0,0 +1,73 @@
+package ch.epfl.javions.aircraft;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ShardCachedAircraftDatabaseTest {
+    private static final long LARGE_BUDGET = 1L << 20;
+    private static final long ONE_BYTE_BUDGET = 1;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void shardCachedAircraftDatabaseAgreesWithTheOriginalDatabase() throws Exception {
+        String zipFileName = AircraftTestDatabase.write(directory, AircraftTestDatabase.LINES);
+        AircraftDatabase originalDatabase = new AircraftDatabase(zipFileName);
+        try (ShardCachedAircraftDatabase database = new ShardCachedAircraftDatabase(zipFileName, LARGE_BUDGET)) {
+            for (String line : AircraftTestDatabase.LINES) {
+                IcaoAddress address = AircraftTestDatabase.address(line);
+                assertEquals(AircraftTestDatabase.data(line), database.get(address));
+                assertEquals(originalDatabase.get(address), database.get(address));
+            }
+            assertNull(database.get(AircraftTestDatabase.ABSENT_ADDRESS_OF_PRESENT_SHARD));
+            assertNull(database.get(AircraftTestDatabase.ABSENT_ADDRESS_OF_ABSENT_SHARD));
+        }
+    }
+
+    @Test
+    void shardCachedAircraftDatabaseDecodesEachShardOnceWithinItsBudget() throws Exception {
+        String zipFileName = AircraftTestDatabase.write(directory, AircraftTestDatabase.LINES);
+        try (ShardCachedAircraftDatabase database = new ShardCachedAircraftDatabase(zipFileName, LARGE_BUDGET)) {
+            for (int i = 0; i < 2; i++) {
+                for (String line : AircraftTestDatabase.LINES) database.get(AircraftTestDatabase.address(line));
+            }
+            // The six aircraft are in five shards, 4B1805 and 4B1A05 sharing the shard 05
+            assertEquals(5, database.misses());
+            assertEquals(2 * AircraftTestDatabase.LINES.size() - 5, database.hits());
+            assertEquals(0, database.evictions());
+            assertTrue(database.cachedBytes() > 0);
+        }
+    }
+
+    @Test
+    void shardCachedAircraftDatabaseEvictsShardsBeyondItsBudget() throws Exception {
+        String zipFileName = AircraftTestDatabase.write(directory, AircraftTestDatabase.LINES);
+        try (ShardCachedAircraftDatabase database = new ShardCachedAircraftDatabase(zipFileName, ONE_BYTE_BUDGET)) {
+            for (String line : AircraftTestDatabase.LINES) {
+                assertEquals(AircraftTestDatabase.data(line), database.get(AircraftTestDatabase.address(line)));
+            }
+            assertTrue(database.evictions() > 0);
+            String lastLine = AircraftTestDatabase.LINES.get(AircraftTestDatabase.LINES.size() - 1);
+            long misses = database.misses();
+            database.get(AircraftTestDatabase.address(lastLine));
+            assertEquals(misses, database.misses());
+
+            database.close();
+            assertEquals(0, database.cachedBytes());
+        }
+    }
+
+    @Test
+    void shardCachedAircraftDatabaseRejectsAnEmptyBudget() throws Exception {
+        String zipFileName = AircraftTestDatabase.write(directory, AircraftTestDatabase.LINES);
+        assertThrows(IllegalArgumentException.class, () -> new ShardCachedAircraftDatabase(zipFileName, 0));
+    }
+}
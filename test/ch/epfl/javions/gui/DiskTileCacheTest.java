@@ -0,0 +1,130 @@
+package ch.epfl.javions.gui;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DiskTileCacheTest {
+    private static final int TILE_BYTES = 1000;
+    private static final long LARGE_BUDGET = 1L << 20;
+
+    @TempDir
+    Path directory;
+
+    private static TileManager.TileId tileId(int x) {
+        return new TileManager.TileId(10, x, 0);
+    }
+
+    private static byte[] tileBytes(int content) {
+        byte[] bytes = new byte[TILE_BYTES];
+        bytes[0] = (byte) content;
+        return bytes;
+    }
+
+    @Test
+    void diskTileCacheReadsBackWrittenTiles() throws Exception {
+        DiskTileCache cache = new DiskTileCache(directory, LARGE_BUDGET);
+        assertNull(cache.read(tileId(0)));
+        for (int x = 0; x < 3; x++) cache.write(tileId(x), tileBytes(x));
+        cache.write(tileId(1), tileBytes(3));
+
+        assertArrayEquals(tileBytes(0), cache.read(tileId(0)));
+        assertArrayEquals(tileBytes(3), cache.read(tileId(1)));
+        assertArrayEquals(tileBytes(2), cache.read(tileId(2)));
+        assertEquals(3L * TILE_BYTES, cache.bytes());
+        assertTrue(Files.isRegularFile(DiskTileCache.path(directory, tileId(2))));
+    }
+
+    @Test
+    void diskTileCacheDeletesTheLeastRecentlyUsedTilesBeyondItsBudget() throws Exception {
+        DiskTileCache cache = new DiskTileCache(directory, 3L * TILE_BYTES);
+        for (int x = 0; x < 3; x++) cache.write(tileId(x), tileBytes(x));
+        cache.read(tileId(0));
+        cache.write(tileId(3), tileBytes(3));
+
+        assertNull(cache.read(tileId(1)));
+        assertFalse(Files.exists(DiskTileCache.path(directory, tileId(1))));
+        assertArrayEquals(tileBytes(0), cache.read(tileId(0)));
+        assertEquals(1, cache.evictions());
+        assertEquals(3L * TILE_BYTES, cache.bytes());
+    }
+
+    @Test
+    void diskTileCacheKeepsATileWrittenAgainAfterItsEviction() throws Exception {
+        DiskTileCache cache = new DiskTileCache(directory, TILE_BYTES);
+        cache.write(tileId(0), tileBytes(0));
+        cache.write(tileId(1), tileBytes(1));
+        cache.write(tileId(0), tileBytes(2));
+
+        assertArrayEquals(tileBytes(2), cache.read(tileId(0)));
+        assertNull(cache.read(tileId(1)));
+        assertEquals(2, cache.evictions());
+    }
+
+    @Test
+    void diskTileCacheIndexesTheTilesOfItsDirectoryAgain() throws Exception {
+        DiskTileCache cache = new DiskTileCache(directory, LARGE_BUDGET);
+        for (int x = 0; x < 3; x++) cache.write(tileId(x), tileBytes(x));
+        Path leftover = Files.createTempFile(DiskTileCache.path(directory, tileId(0)).getParent(), "0.png", ".tmp");
+
+        DiskTileCache reopenedCache = new DiskTileCache(directory, LARGE_BUDGET);
+        assertEquals(3L * TILE_BYTES, reopenedCache.bytes());
+        for (int x = 0; x < 3; x++) assertArrayEquals(tileBytes(x), reopenedCache.read(tileId(x)));
+        assertFalse(Files.exists(leftover));
+
+        DiskTileCache smallerCache = new DiskTileCache(directory, 2L * TILE_BYTES);
+        assertEquals(2L * TILE_BYTES, smallerCache.bytes());
+        assertEquals(1, smallerCache.evictions());
+    }
+
+    @Test
+    void diskTileCacheLinksIdenticalTiles() throws Exception {
+        DiskTileCache cache = new DiskTileCache(directory, LARGE_BUDGET);
+        cache.write(tileId(0), tileBytes(0));
+        cache.write(tileId(1), tileBytes(0));
+
+        assertEquals(1, cache.linkedTiles());
+        assertArrayEquals(tileBytes(0), cache.read(tileId(1)));
+        assertTrue(Files.isSameFile(DiskTileCache.path(directory, tileId(0)),
+                DiskTileCache.path(directory, tileId(1))));
+    }
+
+    @Test
+    void diskTileCacheWritingALinkedTileDoesNotChangeTheTilesLinkedToIt() throws Exception {
+        DiskTileCache cache = new DiskTileCache(directory, LARGE_BUDGET);
+        cache.write(tileId(0), tileBytes(0));
+        cache.write(tileId(1), tileBytes(0));
+        cache.write(tileId(1), tileBytes(1));
+
+        assertArrayEquals(tileBytes(0), cache.read(tileId(0)));
+        assertArrayEquals(tileBytes(1), cache.read(tileId(1)));
+        assertFalse(Files.isSameFile(DiskTileCache.path(directory, tileId(0)),
+                DiskTileCache.path(directory, tileId(1))));
+    }
+
+    @Test
+    void diskTileCacheDoesNotLinkToAnEvictedTile() throws Exception {
+        DiskTileCache cache = new DiskTileCache(directory, TILE_BYTES);
+        cache.write(tileId(0), tileBytes(0));
+        cache.write(tileId(1), tileBytes(1));
+        cache.write(tileId(2), tileBytes(0));
+
+        assertEquals(0, cache.linkedTiles());
+        assertArrayEquals(tileBytes(0), cache.read(tileId(2)));
+        assertNull(cache.read(tileId(0)));
+    }
+
+    @Test
+    void diskTileCacheRejectsANegativeBudget() {
+        assertThrows(IllegalArgumentException.class, () -> new DiskTileCache(directory, -1));
+    }
+}
@@ -0,0 +1,126 @@
+package ch.epfl.javions.gui;
+
+import ch.epfl.javions.Preconditions;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.Closeable;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Represents a tile server running in the current process on the loopback interface, serving the tiles
+ * of another tile source. It stands in for a real tile server when testing or benchmarking, and can add
+ * a latency to every response to mimic a distant server.
+ * Unless the system property sun.net.httpserver.nodelay is set to true before the first server is created,
+ * the server waits for the delayed acknowledgements of the client and answers about 40 ms late.
+ *
+ * @author Ünlüer Asli (329696)
+ * @author Berlin Nicolas (355535)
+ */
+public final class LocalTileServer implements Closeable {
+    private static final Pattern TILE_PATH = Pattern.compile("/(\\d+)/(\\d+)/(\\d+)\\.png");
+    private static final int STATUS_OK = 200;
+    private static final int STATUS_NOT_FOUND = 404;
+    private static final int STATUS_SERVER_ERROR = 500;
+    private static final int THREADS = 8;
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final TileSource source;
+    private final long latencyMs;
+    private final AtomicLong requests = new AtomicLong();
+
+    /**
+     * Constructs and starts a server of the tiles of the given source, on a free port of the loopback interface
+     *
+     * @param source    of the served tiles
+     * @param latencyMs latency added to every response, in milliseconds
+     * @throws IllegalArgumentException if the latency is negative
+     * @throws IOException              if the server can not be started
+     */
+    public LocalTileServer(TileSource source, long latencyMs) throws IOException {
+        Preconditions.checkArgument(latencyMs >= 0);
+        this.source = source;
+        this.latencyMs = latencyMs;
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        this.executor = Executors.newFixedThreadPool(THREADS, runnable -> {
+            Thread thread = new Thread(runnable, "Local tile server");
+            thread.setDaemon(true);
+            return thread;
+        });
+        server.setExecutor(executor);
+        server.createContext("/", this::handle);
+        server.start();
+    }
+
+    /**
+     * Returns the address of the server, to be given to a tile manager or an HttpTileSource
+     *
+     * @return the address of the server, for example "http://127.0.0.1:54321"
+     */
+    public String address() {
+        InetSocketAddress address = server.getAddress();
+        return "http://" + address.getHostString() + ":" + address.getPort();
+    }
+
+    /**
+     * Returns the number of requests received by the server
+     *
+     * @return the number of requests received by the server
+     */
+    public long requests() {
+        return requests.get();
+    }
+
+    /**
+     * Stops the server
+     */
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            requests.incrementAndGet();
+            if (latencyMs > 0) TimeUnit.MILLISECONDS.sleep(latencyMs);
+            Matcher matcher = TILE_PATH.matcher(exchange.getRequestURI().getPath());
+            if (!matcher.matches()) {
+                exchange.sendResponseHeaders(STATUS_NOT_FOUND, -1);
+                return;
+            }
+            int zoom = Integer.parseInt(matcher.group(1));
+            int x = Integer.parseInt(matcher.group(2));
+            int y = Integer.parseInt(matcher.group(3));
+            if (!TileManager.TileId.isValid(zoom, x, y)) {
+                exchange.sendResponseHeaders(STATUS_NOT_FOUND, -1);
+                return;
+            }
+            byte[] bytes = source.tileBytes(new TileManager.TileId(zoom, x, y));
+            exchange.getResponseHeaders().set("Content-Type", "image/png");
+            exchange.sendResponseHeaders(STATUS_OK, bytes.length);
+            try (OutputStream body = exchange.getResponseBody()) {
+                body.write(bytes);
+            }
+        } catch (FileNotFoundException e) {
+            exchange.sendResponseHeaders(STATUS_NOT_FOUND, -1);
+        } catch (IOException | NumberFormatException e) {
+            exchange.sendResponseHeaders(STATUS_SERVER_ERROR, -1);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            exchange.close();
+        }
+    }
+}
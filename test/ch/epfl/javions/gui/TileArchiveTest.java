@@ -0,0 +1,149 @@
+package ch.epfl.javions.gui;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TileArchiveTest {
+    private static final String ARCHIVE = "tiles.pack";
+    private static final String INDEX = ARCHIVE + ".idx";
+    private static final int TILE_BYTES = 1000;
+    private static final int LARGE_TILE_BYTES = 1 << 16;
+    private static final int MANY_TILES = 5000;
+
+    @TempDir
+    Path directory;
+
+    private static TileManager.TileId tileId(int x) {
+        return new TileManager.TileId(17, x, 0);
+    }
+
+    private static byte[] tileBytes(int content, int length) {
+        return ByteBuffer.allocate(length).putInt(content).array();
+    }
+
+    private static byte[] tileBytes(int content) {
+        return tileBytes(content, TILE_BYTES);
+    }
+
+    private Path archiveFile() {
+        return directory.resolve(ARCHIVE);
+    }
+
+    @Test
+    void tileArchiveReadsBackWrittenTilesAfterReopening() throws Exception {
+        try (TileArchive archive = new TileArchive(archiveFile())) {
+            assertNull(archive.read(tileId(0)));
+            for (int x = 0; x < MANY_TILES; x++) archive.write(tileId(x), tileBytes(x));
+            archive.write(tileId(1), tileBytes(-1));
+            assertEquals(MANY_TILES, archive.size());
+            assertArrayEquals(tileBytes(-1), archive.read(tileId(1)));
+        }
+        try (TileArchive archive = new TileArchive(archiveFile())) {
+            assertEquals(MANY_TILES, archive.size());
+            assertArrayEquals(tileBytes(-1), archive.read(tileId(1)));
+            for (int x = 2; x < MANY_TILES; x++) assertArrayEquals(tileBytes(x), archive.read(tileId(x)));
+            assertNull(archive.read(tileId(MANY_TILES)));
+        }
+    }
+
+    @Test
+    void tileArchiveAppendsIdenticalTilesOnce() throws Exception {
+        try (TileArchive archive = new TileArchive(archiveFile())) {
+            for (int x = 0; x < 4; x++) archive.write(tileId(x), tileBytes(0));
+            assertEquals(3, archive.deduplicatedWrites());
+            assertEquals(4.0, archive.deduplicationRatio());
+            assertEquals(TILE_BYTES, Files.size(archiveFile()));
+            for (int x = 0; x < 4; x++) assertArrayEquals(tileBytes(0), archive.read(tileId(x)));
+        }
+    }
+
+    @Test
+    void tileArchiveCompactionKeepsTheImagesInUse() throws Exception {
+        try (TileArchive archive = new TileArchive(archiveFile())) {
+            archive.write(tileId(0), tileBytes(0));
+            archive.write(tileId(1), tileBytes(0));
+            for (int x = 2; x < 10; x++) archive.write(tileId(x), tileBytes(x));
+            // The image of tile 0 is still used by tile 1, only the images of tiles 2 to 9 become unused
+            archive.write(tileId(0), tileBytes(-1));
+            for (int x = 2; x < 10; x++) archive.write(tileId(x), tileBytes(-x));
+            archive.compact();
+
+            assertEquals(10L * TILE_BYTES, Files.size(archiveFile()));
+            assertArrayEquals(tileBytes(-1), archive.read(tileId(0)));
+            assertArrayEquals(tileBytes(0), archive.read(tileId(1)));
+            for (int x = 2; x < 10; x++) assertArrayEquals(tileBytes(-x), archive.read(tileId(x)));
+
+            archive.write(tileId(10), tileBytes(0));
+            assertEquals(10L * TILE_BYTES, Files.size(archiveFile()));
+        }
+        try (TileArchive archive = new TileArchive(archiveFile())) {
+            assertEquals(11, archive.size());
+            assertArrayEquals(tileBytes(0), archive.read(tileId(10)));
+            for (int x = 2; x < 10; x++) assertArrayEquals(tileBytes(-x), archive.read(tileId(x)));
+        }
+    }
+
+    @Test
+    void tileArchiveCompactsItselfOnceUnusedImagesDominate() throws Exception {
+        int writes = 64;
+        try (TileArchive archive = new TileArchive(archiveFile())) {
+            for (int i = 0; i < writes; i++) archive.write(tileId(0), tileBytes(i, LARGE_TILE_BYTES));
+            assertTrue(Files.size(archiveFile()) < (long) writes * LARGE_TILE_BYTES / 2);
+            assertArrayEquals(tileBytes(writes - 1, LARGE_TILE_BYTES), archive.read(tileId(0)));
+        }
+    }
+
+    @Test
+    void tileArchiveRejectsAnIndexOlderThanItsCompaction() throws Exception {
+        Path oldIndex = directory.resolve("old.idx");
+        try (TileArchive archive = new TileArchive(archiveFile())) {
+            for (int x = 0; x < 10; x++) archive.write(tileId(x), tileBytes(x));
+            for (int x = 0; x < 10; x++) archive.write(tileId(x), tileBytes(-x));
+        }
+        Files.copy(directory.resolve(INDEX), oldIndex);
+        try (TileArchive archive = new TileArchive(archiveFile())) {
+            archive.compact();
+        }
+        Files.copy(oldIndex, directory.resolve(INDEX), StandardCopyOption.REPLACE_EXISTING);
+        assertThrows(IOException.class, () -> new TileArchive(archiveFile()));
+    }
+
+    @Test
+    void tileArchiveLeavesNoTemporaryFileAfterCompaction() throws Exception {
+        try (TileArchive archive = new TileArchive(archiveFile())) {
+            for (int x = 0; x < 10; x++) archive.write(tileId(x), tileBytes(x));
+            archive.write(tileId(0), tileBytes(-1));
+            archive.compact();
+            archive.compact();
+        }
+        try (var files = Files.list(directory)) {
+            assertEquals(2, files.count());
+        }
+    }
+
+    @Test
+    void tileArchiveExportsAndImportsDirectoriesOfTiles() throws Exception {
+        Path tiles = directory.resolve("tiles");
+        try (TileArchive archive = new TileArchive(archiveFile())) {
+            for (int x = 0; x < 10; x++) archive.write(tileId(x), tileBytes(x % 3));
+            assertEquals(10, archive.exportDirectory(tiles));
+        }
+        try (TileArchive archive = new TileArchive(directory.resolve("imported.pack"))) {
+            assertEquals(10, archive.importDirectory(tiles));
+            for (int x = 0; x < 10; x++) assertArrayEquals(tileBytes(x % 3), archive.read(tileId(x)));
+            assertEquals(3L * TILE_BYTES, Files.size(directory.resolve("imported.pack")));
+        }
+    }
+}
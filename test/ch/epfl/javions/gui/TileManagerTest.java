@@ -0,0 +1,170 @@
+package ch.epfl.javions.gui;
+
+import javafx.scene.image.Image;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TileManagerTest {
+    private static final int TILE_SIDE = 256;
+    private static final long TIMEOUT_MS = 5_000;
+    private static final long POLLING_PERIOD_MS = 20;
+    private static final long SLOW_SERVER_LATENCY_MS = 500;
+    private static final long QUIET_PERIOD_MS = 500;
+    private static final long IMAGE_BUDGET = 16L << 20;
+    private static final long DISK_BUDGET = 16L << 20;
+    private static final TileManager.TileId TILE = new TileManager.TileId(10, 530, 361);
+
+    @TempDir
+    Path cacheDirectory;
+
+    private static byte[] pngBytes(TileManager.TileId tileId) {
+        BufferedImage image = new BufferedImage(TILE_SIDE, TILE_SIDE, BufferedImage.TYPE_INT_RGB);
+        int color = tileId.hashCode() & 0xFF_FF_FF;
+        for (int y = 0; y < TILE_SIDE; y++) {
+            for (int x = 0; x < TILE_SIDE; x++) image.setRGB(x, y, color);
+        }
+        try (ByteArrayOutputStream stream = new ByteArrayOutputStream()) {
+            ImageIO.write(image, "png", stream);
+            return stream.toByteArray();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static TileManager tileManager(DiskTileCache cache, LocalTileServer server,
+                                           Consumer<TileManager.TileId> onTileLoaded) {
+        TileManager manager = new TileManager(cache, TileSource.of(server.address()),
+                IMAGE_BUDGET, IMAGE_BUDGET, Runnable::run);
+        manager.setOnTileLoaded(onTileLoaded);
+        return manager;
+    }
+
+    private static boolean waitUntil(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(TIMEOUT_MS);
+        while (!condition.getAsBoolean()) {
+            if (System.nanoTime() > deadline) return false;
+            Thread.sleep(POLLING_PERIOD_MS);
+        }
+        return true;
+    }
+
+    private static Image loadWhileFailing(TileManager manager, TileManager.TileId tileId)
+            throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(TIMEOUT_MS);
+        Image image;
+        while ((image = manager.loadedImageForTileAt(tileId)) == null && System.nanoTime() < deadline) {
+            Thread.sleep(POLLING_PERIOD_MS);
+        }
+        return image;
+    }
+
+    @Test
+    void tileManagerMissesThenCallsBackThenHits() throws Exception {
+        BlockingQueue<TileManager.TileId> loaded = new LinkedBlockingQueue<>();
+        DiskTileCache cache = new DiskTileCache(cacheDirectory, DISK_BUDGET);
+        try (LocalTileServer server = new LocalTileServer(TileManagerTest::pngBytes, 0)) {
+            TileManager manager = tileManager(cache, server, loaded::add);
+
+            assertNull(manager.loadedImageForTileAt(TILE));
+            assertEquals(TILE, loaded.poll(TIMEOUT_MS, TimeUnit.MILLISECONDS));
+
+            Image image = manager.loadedImageForTileAt(TILE);
+            assertNotNull(image);
+            assertEquals(TILE_SIDE, image.getWidth());
+            assertArrayEquals(pngBytes(TILE), cache.read(TILE));
+            assertEquals(1, server.requests());
+            assertEquals(1, manager.cacheStatistics().hits());
+            assertTrue(loaded.isEmpty());
+        }
+    }
+
+    @Test
+    void tileManagerNeverCallsBackForADroppedRequest() throws Exception {
+        List<TileManager.TileId> loaded = new CopyOnWriteArrayList<>();
+        TileManager.TileId first = new TileManager.TileId(10, 0, 0);
+        TileManager.TileId second = new TileManager.TileId(10, 0, 1);
+        try (LocalTileServer server = new LocalTileServer(TileManagerTest::pngBytes, SLOW_SERVER_LATENCY_MS)) {
+            TileManager manager = tileManager(new DiskTileCache(cacheDirectory, DISK_BUDGET), server, loaded::add);
+            manager.loadedImageForTileAt(first);
+            manager.loadedImageForTileAt(second);
+            assertTrue(waitUntil(() -> server.requests() == 2));
+
+            // Both connections are busy, so the request stays pending until it is dropped
+            manager.loadedImageForTileAt(TILE);
+            Thread.sleep(SLOW_SERVER_LATENCY_MS / 5);
+            manager.retainRequestsIf(tileId -> !tileId.equals(TILE));
+
+            assertTrue(waitUntil(() -> loaded.size() == 2));
+            Thread.sleep(2 * SLOW_SERVER_LATENCY_MS);
+            assertFalse(loaded.contains(TILE));
+            assertEquals(2, server.requests());
+            assertNull(manager.cachedImageForTileAt(TILE));
+        }
+    }
+
+    @Test
+    void tileManagerRetriesATileWhoseDownloadFailed() throws Exception {
+        List<TileManager.TileId> loaded = new CopyOnWriteArrayList<>();
+        AtomicInteger downloads = new AtomicInteger();
+        TileSource failingOnce = tileId -> {
+            if (downloads.incrementAndGet() == 1) throw new IOException("Server failure");
+            return pngBytes(tileId);
+        };
+        DiskTileCache cache = new DiskTileCache(cacheDirectory, DISK_BUDGET);
+        try (LocalTileServer server = new LocalTileServer(failingOnce, 0)) {
+            TileManager manager = tileManager(cache, server, loaded::add);
+
+            assertNotNull(loadWhileFailing(manager, TILE));
+            assertEquals(2, downloads.get());
+            assertEquals(List.of(TILE), loaded);
+            assertArrayEquals(pngBytes(TILE), cache.read(TILE));
+        }
+    }
+
+    @Test
+    void tileManagerDoesNotCacheAnUndecodableTile() throws Exception {
+        List<TileManager.TileId> loaded = new CopyOnWriteArrayList<>();
+        AtomicInteger downloads = new AtomicInteger();
+        TileSource corruptOnce = tileId -> downloads.incrementAndGet() == 1
+                ? new byte[]{1, 2, 3}
+                : pngBytes(tileId);
+        DiskTileCache cache = new DiskTileCache(cacheDirectory, DISK_BUDGET);
+        try (LocalTileServer server = new LocalTileServer(corruptOnce, 0)) {
+            TileManager manager = tileManager(cache, server, loaded::add);
+
+            assertNull(manager.loadedImageForTileAt(TILE));
+            assertTrue(waitUntil(() -> downloads.get() == 1));
+            Thread.sleep(QUIET_PERIOD_MS);
+            assertTrue(loaded.isEmpty());
+            assertNull(cache.read(TILE));
+            assertNull(manager.cachedImageForTileAt(TILE));
+
+            assertNotNull(loadWhileFailing(manager, TILE));
+            assertEquals(2, downloads.get());
+            assertEquals(List.of(TILE), loaded);
+            assertArrayEquals(pngBytes(TILE), cache.read(TILE));
+        }
+    }
+}
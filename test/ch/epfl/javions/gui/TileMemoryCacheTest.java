@@ -0,0 +1,123 @@
+package ch.epfl.javions.gui;
+
+import ch.epfl.javions.ByteString;
+import javafx.scene.image.Image;
+import javafx.scene.image.WritableImage;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TileMemoryCacheTest {
+    private static final int TILE_SIDE = 256;
+    private static final long IMAGE_BYTES = 4L * TILE_SIDE * TILE_SIDE;
+    private static final int COMPRESSED_IMAGE_BYTES = 100;
+
+    private static TileManager.TileId tileId(int x) {
+        return new TileManager.TileId(10, x, 0);
+    }
+
+    private static byte[] compressedImage(int content) {
+        byte[] bytes = new byte[COMPRESSED_IMAGE_BYTES];
+        bytes[0] = (byte) content;
+        return bytes;
+    }
+
+    private static void put(TileMemoryCache cache, int x, int content) {
+        byte[] bytes = compressedImage(content);
+        cache.put(tileId(x), TileManager.contentHash(bytes), new WritableImage(TILE_SIDE, TILE_SIDE), bytes);
+    }
+
+    @Test
+    void tileMemoryCacheEvictsTheLeastRecentlyUsedImagesBeyondItsBudget() {
+        TileMemoryCache cache = new TileMemoryCache(2 * IMAGE_BYTES, Long.MAX_VALUE);
+        put(cache, 0, 0);
+        put(cache, 1, 1);
+        assertNotNull(cache.image(tileId(0)));
+        put(cache, 2, 2);
+
+        assertNotNull(cache.cachedImage(tileId(0)));
+        assertNull(cache.cachedImage(tileId(1)));
+        assertNotNull(cache.cachedImage(tileId(2)));
+        TileManager.CacheStatistics statistics = cache.statistics();
+        assertEquals(1, statistics.evictions());
+        assertEquals(2, statistics.images());
+        assertEquals(2 * IMAGE_BYTES, statistics.imageBytes());
+    }
+
+    @Test
+    void tileMemoryCacheKeepsTheCompressedImagesOfEvictedImages() {
+        TileMemoryCache cache = new TileMemoryCache(IMAGE_BYTES, 2 * COMPRESSED_IMAGE_BYTES);
+        put(cache, 0, 0);
+        put(cache, 1, 1);
+        assertNull(cache.cachedImage(tileId(0)));
+        assertArrayEquals(compressedImage(0), cache.compressedImage(tileId(0)));
+
+        put(cache, 2, 2);
+        assertNull(cache.compressedImage(tileId(1)));
+        assertArrayEquals(compressedImage(0), cache.compressedImage(tileId(0)));
+        assertEquals(2, cache.statistics().compressedImages());
+        assertEquals(2L * COMPRESSED_IMAGE_BYTES, cache.statistics().compressedImageBytes());
+    }
+
+    @Test
+    void tileMemoryCacheCountsIdenticalTilesOnce() {
+        TileMemoryCache cache = new TileMemoryCache(IMAGE_BYTES, Long.MAX_VALUE);
+        put(cache, 0, 0);
+        ByteString contentHash = TileManager.contentHash(compressedImage(0));
+        Image sharedImage = cache.imageWithContent(contentHash);
+        for (int x = 1; x < 4; x++) cache.put(tileId(x), contentHash, sharedImage, compressedImage(0));
+
+        TileManager.CacheStatistics statistics = cache.statistics();
+        assertEquals(4, statistics.images());
+        assertEquals(1, statistics.uniqueImages());
+        assertEquals(IMAGE_BYTES, statistics.imageBytes());
+        assertEquals(COMPRESSED_IMAGE_BYTES, statistics.compressedImageBytes());
+        assertEquals(4.0, statistics.deduplicationRatio());
+        assertEquals(0, statistics.evictions());
+        for (int x = 0; x < 4; x++) assertSame(sharedImage, cache.cachedImage(tileId(x)));
+    }
+
+    @Test
+    void tileMemoryCacheReleasesTheContentOfAReplacedTile() {
+        TileMemoryCache cache = new TileMemoryCache(Long.MAX_VALUE, Long.MAX_VALUE);
+        put(cache, 0, 0);
+        put(cache, 1, 0);
+        put(cache, 0, 1);
+        put(cache, 1, 1);
+
+        TileManager.CacheStatistics statistics = cache.statistics();
+        assertEquals(2, statistics.images());
+        assertEquals(1, statistics.uniqueImages());
+        assertEquals(IMAGE_BYTES, statistics.imageBytes());
+        assertNull(cache.imageWithContent(TileManager.contentHash(compressedImage(0))));
+    }
+
+    @Test
+    void tileMemoryCacheCountsHitsAndMisses() {
+        TileMemoryCache cache = new TileMemoryCache(Long.MAX_VALUE, Long.MAX_VALUE);
+        assertNull(cache.image(tileId(0)));
+        put(cache, 0, 0);
+        assertNotNull(cache.image(tileId(0)));
+        assertNotNull(cache.cachedImage(tileId(0)));
+        assertTrue(cache.containsImage(tileId(0)));
+        cache.recordLoad(10);
+        cache.recordLoad(30);
+
+        TileManager.CacheStatistics statistics = cache.statistics();
+        assertEquals(1, statistics.hits());
+        assertEquals(1, statistics.misses());
+        assertEquals(20, statistics.averageLoadTimeNs());
+    }
+
+    @Test
+    void tileMemoryCacheRejectsNegativeBudgets() {
+        assertThrows(IllegalArgumentException.class, () -> new TileMemoryCache(-1, 0));
+        assertThrows(IllegalArgumentException.class, () -> new TileMemoryCache(0, -1));
+    }
+}
@@ -0,0 +1,71 @@
+package ch.epfl.javions.gui;
+
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Measures the number of tiles per second loaded from a local tile server, by an HttpTileSource and by
+ * a UrlConnectionTileSource
+ *
+ * @author Ünlüer Asli (329696)
+ * @author Berlin Nicolas (355535)
+ */
+public final class TileSourceBenchmark {
+    private static final int ZOOM = 12;
+    private static final int TILE_BYTES = 16 << 10;
+    private static final int DEFAULT_TILES = 2000;
+    private static final int DEFAULT_THREADS = 2;
+    private static final long DEFAULT_LATENCY_MS = 0;
+    private static final String NODELAY_PROPERTY = "sun.net.httpserver.nodelay";
+
+    private TileSourceBenchmark() {
+    }
+
+    /**
+     * Runs the benchmark
+     *
+     * @param args optional number of tiles, number of threads and latency of the server in milliseconds
+     * @throws Exception in case of error while loading the tiles
+     */
+    public static void main(String[] args) throws Exception {
+        int tiles = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_TILES;
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_THREADS;
+        long latencyMs = args.length > 2 ? Long.parseLong(args[2]) : DEFAULT_LATENCY_MS;
+        // without it, the local server answers 40 ms late, waiting for the delayed acknowledgements
+        System.setProperty(NODELAY_PROPERTY, "true");
+        byte[] tileBytes = new byte[TILE_BYTES];
+        new Random(0).nextBytes(tileBytes);
+        try (LocalTileServer server = new LocalTileServer(tileId -> tileBytes, latencyMs)) {
+            TileSource pooled = new HttpTileSource(server.address());
+            TileSource unpooled = new UrlConnectionTileSource(server.address());
+            for (int round = 0; round < 2; round++) {
+                boolean warmUp = round == 0;
+                report("HttpTileSource", pooled, warmUp ? tiles / 10 : tiles, threads, warmUp);
+                report("URLConnection", unpooled, warmUp ? tiles / 10 : tiles, threads, warmUp);
+            }
+        }
+    }
+
+    private static void report(String name, TileSource source, int tiles, int threads, boolean warmUp)
+            throws Exception {
+        long startTime = System.nanoTime();
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<byte[]>> futures = new ArrayList<>(tiles);
+            for (int i = 0; i < tiles; i++) {
+                TileManager.TileId tileId = new TileManager.TileId(ZOOM, i % (1 << ZOOM), i / (1 << ZOOM));
+                futures.add(executor.submit(() -> source.tileBytes(tileId)));
+            }
+            for (Future<byte[]> future : futures) future.get();
+        } finally {
+            executor.shutdown();
+        }
+        double seconds = (System.nanoTime() - startTime) / 1e9;
+        if (!warmUp) System.out.printf("%-15s %8.0f tiles/s (%d tiles, %d threads)%n",
+                name, tiles / seconds, tiles, threads);
+    }
+}
@@ -0,0 +1,61 @@
+package ch.epfl.javions.gui;
+
+import ch.epfl.javions.GeoPos;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TrajectoryStoreTest {
+    private static final int MAXIMUM_TESTED_SIZE = 9;
+
+    private static TrajectoryStore filledStore(int maximumSize, ObservableAircraftState.TrajectoryEviction eviction,
+                                               int positions) {
+        TrajectoryStore store = new TrajectoryStore(maximumSize, eviction);
+        for (int i = 0; i < positions; i++) store.add(new GeoPos(i, i), i, i);
+        return store;
+    }
+
+    @Test
+    void trajectoryStoreDropOldestKeepsTheLastPositionsAroundTheMaximumSize() {
+        for (int maximumSize = 2; maximumSize <= MAXIMUM_TESTED_SIZE; maximumSize++) {
+            for (int positions = 0; positions <= 3 * maximumSize; positions++) {
+                TrajectoryStore store = filledStore(maximumSize,
+                        ObservableAircraftState.TrajectoryEviction.DROP_OLDEST, positions);
+                int expectedSize = Math.min(positions, maximumSize);
+                assertEquals(expectedSize, store.size());
+                for (int i = 0; i < expectedSize; i++) {
+                    long expectedTimeStamp = positions - expectedSize + i;
+                    assertEquals(expectedTimeStamp, store.timeStampNs(i));
+                    assertEquals(expectedTimeStamp, store.get(i).altitude());
+                }
+            }
+        }
+    }
+
+    @Test
+    void trajectoryStoreDecimateStaysBoundedAndOrderedAroundTheMaximumSize() {
+        for (int maximumSize = 2; maximumSize <= MAXIMUM_TESTED_SIZE; maximumSize++) {
+            for (int positions = 0; positions <= 3 * maximumSize; positions++) {
+                TrajectoryStore store = filledStore(maximumSize,
+                        ObservableAircraftState.TrajectoryEviction.DECIMATE, positions);
+                assertEquals(Math.min(positions, 1), Math.min(store.size(), 1));
+                assertTrue(store.size() <= maximumSize);
+                for (int i = 1; i < store.size(); i++) {
+                    assertTrue(store.timeStampNs(i - 1) < store.timeStampNs(i));
+                    assertEquals(store.timeStampNs(i), store.get(i).altitude());
+                }
+                if (positions > 0) assertEquals(positions - 1, store.timeStampNs(store.size() - 1));
+            }
+        }
+    }
+
+    @Test
+    void trajectoryStoreDecimateKeepsTheFirstPositionWhenItCanDecimate() {
+        for (int maximumSize = 4; maximumSize <= MAXIMUM_TESTED_SIZE; maximumSize++) {
+            TrajectoryStore store = filledStore(maximumSize,
+                    ObservableAircraftState.TrajectoryEviction.DECIMATE, 3 * maximumSize);
+            assertEquals(0, store.timeStampNs(0));
+        }
+    }
+}